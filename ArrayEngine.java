@@ -0,0 +1,608 @@
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * An alternative simulation engine that keeps every organism's state in
+ * parallel primitive arrays instead of in one object per organism.
+ * An organism is a slot in those arrays, holding its species id, age,
+ * food level, cell and whether it is alive. The grid maps each cell to
+ * the slot that occupies it.
+ *
+ * The engine follows the same rules as Organism.act, with the species
+ * parameters it is given. Like Simulator it builds each step into a
+ * second grid and a second set of arrays, and the two sets swap roles
+ * after every step. It draws the same random numbers, in the same
+ * order, as a Simulator stepped on one thread, so from the same seed
+ * and parameters the two produce the same population at every step.
+ * Like a Field it keeps a live count of each species, so counting
+ * costs nothing.
+ *
+ * The arrays come from an EngineMemory and are indexed by long, so
+ * with a memory outside the heap the field may have more than 2^31
+ * cells. By default they are ordinary arrays on the heap. Organisms
+ * are numbered by int, so fewer than 2^31 may be alive at once; a step
+ * that would need more fails with an IllegalStateException.
+ *
+ * @author David J. Barnes and Michael Kölling
+ * @version 7.1
+ */
+public class ArrayEngine
+{
+    // The number of slots allocated at first.
+    private static final int INITIAL_CAPACITY = 1024;
+    // The most slots a generation can have. A slot is an int, and the
+    // grid holds one more than it.
+    private static final int MAX_SLOTS = Integer.MAX_VALUE - 8;
+    // The species, indexed by species id.
+    private static final Species[] SPECIES = Species.values();
+    // A random number generator shared with the rest of the simulation.
+    private static final Random rand = Randomizer.getRandom();
+    // The states of an organism held in a Generation's alive array.
+    private static final int DEAD = 0;
+    private static final int ALIVE = 1;
+    // Dead, but having moved into the state being built first, so that,
+    // as in Field, its old cell still shows it to its neighbours.
+    private static final int GONE = 2;
+    // The successor of an organism that moved into the state being
+    // built and was then displaced there by another.
+    private static final int DISPLACED = -2;
+
+    // The dimensions of the field.
+    private final int depth, width;
+    // The parameters of the species.
+    private final Parameters parameters;
+    // For each cell, one more than the slot occupying it, or 0 if empty.
+    private EngineMemory.Ints grid, nextGrid;
+    // The organisms of the current state and of the state being built.
+    private Generation current, next;
+    // Scratch space for the cells adjacent to the organism acting.
+    private final long[] adjacent = new long[8];
+    private final long[] free = new long[8];
+    // The current step of the simulation.
+    private int step;
+
+    /**
+     * Create an engine for a field of the given size and populate it.
+     * Its state is kept on the heap.
+     * @param depth Depth of the field. Must be greater than zero.
+     * @param width Width of the field. Must be greater than zero.
+     */
+    public ArrayEngine(int depth, int width)
+    {
+        this(depth, width, Parameters.DEFAULT, EngineMemory.HEAP);
+    }
+
+    /**
+     * Create an engine for a field of the given size and populate it,
+     * using the default parameters of the species.
+     * @param depth Depth of the field. Must be greater than zero.
+     * @param width Width of the field. Must be greater than zero.
+     * @param memory Where to keep the engine's state. The engine must
+     *               not be used once the memory is closed.
+     */
+    public ArrayEngine(int depth, int width, EngineMemory memory)
+    {
+        this(depth, width, Parameters.DEFAULT, memory);
+    }
+
+    /**
+     * Create an engine for a field of the given size and populate it.
+     * @param depth Depth of the field. Must be greater than zero.
+     * @param width Width of the field. Must be greater than zero.
+     * @param parameters The parameters of the species.
+     * @param memory Where to keep the engine's state. The engine must
+     *               not be used once the memory is closed.
+     */
+    public ArrayEngine(int depth, int width, Parameters parameters, EngineMemory memory)
+    {
+        this.depth = depth;
+        this.width = width;
+        this.parameters = parameters;
+        grid = memory.ints((long) depth * width);
+        nextGrid = memory.ints((long) depth * width);
+        current = new Generation(memory);
+        next = new Generation(memory);
+        reset();
+    }
+
+    /**
+     * Run the engine for the given number of steps.
+     * Stop before the given number of steps if it ceases to be viable.
+     * @param numSteps The number of steps to run for.
+     */
+    public void simulate(int numSteps)
+    {
+        for(int n = 1; n <= numSteps && isViable(); n++) {
+            simulateOneStep();
+        }
+    }
+
+    /**
+     * Run the engine from its current state for a single step.
+     */
+    public void simulateOneStep()
+    {
+        step++;
+        // Empty the state left over from two steps ago.
+        for(int slot = 0; slot < next.size; slot++) {
+            nextGrid.set(cellOf(next.row.get(slot), next.col.get(slot)), 0);
+        }
+        next.clear();
+        current.successor.fill(0, current.size, -1);
+
+        for(int slot = 0; slot < current.size; slot++) {
+            if(current.alive.get(slot) == ALIVE) {
+                act(slot);
+            }
+        }
+
+        EngineMemory.Ints oldGrid = grid;
+        grid = nextGrid;
+        nextGrid = oldGrid;
+        Generation oldGeneration = current;
+        current = next;
+        next = oldGeneration;
+    }
+
+    /**
+     * Reset the engine to a randomly populated starting position.
+     */
+    public void reset()
+    {
+        step = 0;
+        grid.fill(0, grid.length(), 0);
+        nextGrid.fill(0, nextGrid.length(), 0);
+        current.clear();
+        next.clear();
+        for(int row = 0; row < depth; row++) {
+            for(int col = 0; col < width; col++) {
+                for(Species species : SPECIES) {
+                    if(rand.nextDouble() <= parameters.creationProbability(species)) {
+                        int slot = current.add();
+                        current.set(slot, species, rand.nextInt(parameters.maxAge(species)),
+                                    newFoodLevel(species), row, col, -1);
+                        grid.set(cellOf(row, col), slot + 1);
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return The current step of the simulation.
+     */
+    public int getStep()
+    {
+        return step;
+    }
+
+    /**
+     * @return The parameters of the species.
+     */
+    public Parameters getParameters()
+    {
+        return parameters;
+    }
+
+    /**
+     * Return the number of live organisms of the given species.
+     * The count is kept up to date as organisms are born and die.
+     * @param species The species to count.
+     * @return The number of live organisms of that species.
+     */
+    public int getCount(Species species)
+    {
+        return current.counts[species.ordinal()];
+    }
+
+    /**
+     * Return the species of the live organism in a cell.
+     * @param row The row of the cell.
+     * @param col The column of the cell.
+     * @return The species, or null if the cell is free.
+     */
+    public Species getSpeciesAt(int row, int col)
+    {
+        int slot = grid.get(cellOf(row, col)) - 1;
+        if(slot < 0 || current.alive.get(slot) != ALIVE) {
+            return null;
+        }
+        return SPECIES[current.species.get(slot)];
+    }
+
+    /**
+     * Return whether there is at least one hare and one wolf alive.
+     * @return true if there is at least one hare and one wolf alive.
+     */
+    public boolean isViable()
+    {
+        return Viability.HARES_AND_WOLVES.test(this::getCount);
+    }
+
+    /**
+     * Describe the number of each species alive.
+     * @return The counts, on one line.
+     */
+    public String describe()
+    {
+        StringBuilder text = new StringBuilder();
+        for(Species species : SPECIES) {
+            text.append(species).append(": ").append(getCount(species)).append("  ");
+        }
+        return text.toString().trim();
+    }
+
+    /**
+     * Apply the rules of the organism's species to one organism.
+     * @param slot The organism's slot in the current state.
+     */
+    private void act(int slot)
+    {
+        Species species = SPECIES[current.species.get(slot)];
+        int age = current.age.get(slot) + 1;
+        current.age.set(slot, age);
+        boolean survives = age <= parameters.maxAge(species);
+        if(species.kind() == Species.Kind.PREDATOR) {
+            int food = current.food.get(slot) - 1;
+            current.food.set(slot, food);
+            if(food <= 0) {
+                survives = false;
+            }
+        }
+        if(!survives) {
+            current.die(slot, DEAD);
+            return;
+        }
+
+        int row = current.row.get(slot);
+        int col = current.col.get(slot);
+        if(species.kind() == Species.Kind.PLANT && isEaten(row, col, species)) {
+            current.die(slot, DEAD);
+            return;
+        }
+        int freeCount = findFreeCells(row, col);
+        int used = 0;
+        if(freeCount > 0) {
+            int births = species.kind() == Species.Kind.PLANT ? 1 : breed(species, age);
+            for(int b = 0; b < births && used < freeCount; b++) {
+                // Draw the cell, then the age and the food level, in the
+                // order in which Organism draws them.
+                long cell = takeFree(used++, freeCount);
+                int youngAge = species.kind() == Species.Kind.PLANT
+                               ? rand.nextInt(parameters.maxAge(species)) : 0;
+                place(species, youngAge, newFoodLevel(species), cell, -1);
+            }
+        }
+        long nextCell = -1;
+        if(species.kind() == Species.Kind.PREDATOR) {
+            nextCell = hunt(slot, row, col, species);
+        }
+        if(nextCell < 0 && used < freeCount) {
+            nextCell = takeFree(used, freeCount);
+        }
+        if(nextCell >= 0) {
+            current.successor.set(slot, place(species, age, current.food.get(slot), nextCell, slot));
+        }
+        else {
+            // Overcrowding.
+            current.die(slot, DEAD);
+        }
+    }
+
+    /**
+     * Look for live animal food adjacent to a predator, in random order.
+     * Only the first one found is eaten. The prey that still show in
+     * their cells are drawn in turn, as from a Neighbours cursor, and
+     * one that turns out to be dead is passed over.
+     * @param slot The predator's slot in the current state.
+     * @param row The predator's row.
+     * @param col The predator's column.
+     * @param species The predator's species.
+     * @return The cell where food was found, or -1 if none was.
+     */
+    private long hunt(int slot, int row, int col, Species species)
+    {
+        int count = findAdjacentCells(row, col, adjacent);
+        int diet = species.preyMask();
+        int found = 0;
+        for(int i = 0; i < count; i++) {
+            int prey = grid.get(adjacent[i]) - 1;
+            if(prey >= 0 && current.alive.get(prey) != DEAD
+               && (diet & (1 << current.species.get(prey))) != 0) {
+                adjacent[found++] = adjacent[i];
+            }
+        }
+        while(found > 0) {
+            int chosen = found == 1 ? 0 : rand.nextInt(found);
+            long foodCell = adjacent[chosen];
+            // The cells left keep their order.
+            System.arraycopy(adjacent, chosen + 1, adjacent, chosen, found - chosen - 1);
+            found--;
+            int prey = grid.get(foodCell) - 1;
+            if(current.alive.get(prey) == ALIVE) {
+                kill(prey);
+                current.food.set(slot, parameters.foodValue(species));
+                return foodCell;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Return whether a live eater of the given plant is adjacent to it.
+     * @param row The plant's row.
+     * @param col The plant's column.
+     * @param species The plant's species.
+     * @return true if the plant is eaten.
+     */
+    private boolean isEaten(int row, int col, Species species)
+    {
+        int count = findAdjacentCells(row, col, adjacent);
+        int eaters = species.eaterMask();
+        for(int i = 0; i < count; i++) {
+            int other = grid.get(adjacent[i]) - 1;
+            if(other >= 0 && current.alive.get(other) == ALIVE
+               && (eaters & (1 << current.species.get(other))) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Fill 'free' with the cells adjacent to the given one that are free
+     * in the state being built. Use takeFree to draw them in random order.
+     * @param row The row of the cell whose neighbours are examined.
+     * @param col The column of the cell.
+     * @return The number of free cells found.
+     */
+    private int findFreeCells(int row, int col)
+    {
+        int count = findAdjacentCells(row, col, adjacent);
+        int freeCount = 0;
+        for(int i = 0; i < count; i++) {
+            int other = nextGrid.get(adjacent[i]) - 1;
+            if(other < 0 || next.alive.get(other) != ALIVE) {
+                free[freeCount++] = adjacent[i];
+            }
+        }
+        return freeCount;
+    }
+
+    /**
+     * Draw a random free cell from those not yet drawn, as a Neighbours
+     * cursor does, so only the cells actually used cost a random number.
+     * The cells not yet drawn keep their order.
+     * @param used The number of free cells already drawn.
+     * @param freeCount The number of free cells.
+     * @return The cell drawn.
+     */
+    private long takeFree(int used, int freeCount)
+    {
+        int remaining = freeCount - used;
+        int chosen = remaining > 1 ? rand.nextInt(remaining) : 0;
+        long cell = free[used + chosen];
+        System.arraycopy(free, used, free, used + 1, chosen);
+        free[used] = cell;
+        return cell;
+    }
+
+    /**
+     * Fill an array with the cells adjacent to the given one.
+     * @param row The row of the cell whose neighbours are wanted.
+     * @param col The column of the cell.
+     * @param cells The array to fill.
+     * @return The number of adjacent cells.
+     */
+    private int findAdjacentCells(int row, int col, long[] cells)
+    {
+        long cell = cellOf(row, col);
+        if(row > 0 && row < depth - 1 && col > 0 && col < width - 1) {
+            // An interior cell has all eight neighbours.
+            cells[0] = cell - width - 1;
+            cells[1] = cell - width;
+            cells[2] = cell - width + 1;
+            cells[3] = cell - 1;
+            cells[4] = cell + 1;
+            cells[5] = cell + width - 1;
+            cells[6] = cell + width;
+            cells[7] = cell + width + 1;
+            return 8;
+        }
+        int count = 0;
+        for(int nextRow = Math.max(row - 1, 0); nextRow <= Math.min(row + 1, depth - 1); nextRow++) {
+            for(int nextCol = Math.max(col - 1, 0); nextCol <= Math.min(col + 1, width - 1); nextCol++) {
+                if(nextRow != row || nextCol != col) {
+                    cells[count++] = cellOf(nextRow, nextCol);
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Return the row-major index of a cell.
+     * @param row The row of the cell.
+     * @param col The column of the cell.
+     * @return The index: row * width + col.
+     */
+    private long cellOf(int row, int col)
+    {
+        return (long) row * width + col;
+    }
+
+    /**
+     * Place an organism into the state being built.
+     * An organism already in the cell is lost, as in Field.
+     * @param species The organism's species.
+     * @param age The organism's age.
+     * @param food The organism's food level.
+     * @param cell Where to place it.
+     * @param origin The organism's slot in the current state, or -1 if
+     *               it is newly born.
+     * @return The organism's slot in the state being built.
+     */
+    private int place(Species species, int age, int food, long cell, int origin)
+    {
+        int slot = nextGrid.get(cell) - 1;
+        if(slot >= 0) {
+            int replaced = next.origin.get(slot);
+            if(replaced >= 0) {
+                current.successor.set(replaced, DISPLACED);
+            }
+        }
+        else {
+            slot = next.add();
+            nextGrid.set(cell, slot + 1);
+        }
+        int row = (int) (cell / width);
+        next.set(slot, species, age, food, row, (int) (cell - (long) row * width), origin);
+        return slot;
+    }
+
+    /**
+     * Kill an organism of the current state. If it has already moved
+     * into the state being built, it dies there too, and still shows in
+     * its old cell, as it would in a Field.
+     * @param slot The organism's slot in the current state.
+     */
+    private void kill(int slot)
+    {
+        int successor = current.successor.get(slot);
+        if(successor >= 0) {
+            next.die(successor, DEAD);
+        }
+        current.die(slot, successor == -1 ? DEAD : GONE);
+    }
+
+    /**
+     * Generate a number representing the number of births,
+     * if the organism can breed.
+     * @param species The organism's species.
+     * @param age The organism's age.
+     * @return The number of births (may be zero).
+     */
+    private int breed(Species species, int age)
+    {
+        if(age >= parameters.breedingAge(species)
+           && rand.nextDouble() <= parameters.breedingProbability(species)) {
+            return rand.nextInt(parameters.maxLitterSize(species)) + 1;
+        }
+        return 0;
+    }
+
+    /**
+     * Return a random starting food level for a new organism.
+     * @param species The organism's species.
+     * @return The food level.
+     */
+    private int newFoodLevel(Species species)
+    {
+        // Only the species with a default food value have a food level.
+        return species.foodValue() > 0 ? rand.nextInt(parameters.foodValue(species)) : 0;
+    }
+
+    /**
+     * The state of all organisms at one step, as parallel arrays
+     * indexed by slot. Slots in use are packed at the front.
+     */
+    private static class Generation
+    {
+        EngineMemory.Ints species;
+        EngineMemory.Ints age;
+        EngineMemory.Ints food;
+        EngineMemory.Ints row;
+        EngineMemory.Ints col;
+        // ALIVE, DEAD or GONE.
+        EngineMemory.Ints alive;
+        // The slot the organism moved to in the state being built, -1
+        // if it has not moved there, or DISPLACED.
+        EngineMemory.Ints successor;
+        // The slot the organism came from in the current state.
+        EngineMemory.Ints origin;
+        // The number of slots in use.
+        int size;
+        // The number of live organisms of each species, indexed by id.
+        final int[] counts = new int[SPECIES.length];
+
+        /**
+         * Allocate the arrays.
+         * @param memory Where to keep them.
+         */
+        Generation(EngineMemory memory)
+        {
+            species = memory.ints(INITIAL_CAPACITY);
+            age = memory.ints(INITIAL_CAPACITY);
+            food = memory.ints(INITIAL_CAPACITY);
+            row = memory.ints(INITIAL_CAPACITY);
+            col = memory.ints(INITIAL_CAPACITY);
+            alive = memory.ints(INITIAL_CAPACITY);
+            successor = memory.ints(INITIAL_CAPACITY);
+            origin = memory.ints(INITIAL_CAPACITY);
+        }
+
+        /**
+         * Empty every slot.
+         */
+        void clear()
+        {
+            size = 0;
+            Arrays.fill(counts, 0);
+        }
+
+        /**
+         * Claim a new, empty slot, growing the arrays if necessary.
+         * @return The new slot.
+         * @throws IllegalStateException If all MAX_SLOTS slots are in use.
+         */
+        int add()
+        {
+            if(size == MAX_SLOTS) {
+                throw new IllegalStateException("Cannot hold more than " + MAX_SLOTS + " organisms");
+            }
+            if(size == species.length()) {
+                long capacity = Math.min(size * 2L, MAX_SLOTS);
+                species = species.resize(capacity);
+                age = age.resize(capacity);
+                food = food.resize(capacity);
+                row = row.resize(capacity);
+                col = col.resize(capacity);
+                alive = alive.resize(capacity);
+                successor = successor.resize(capacity);
+                origin = origin.resize(capacity);
+            }
+            alive.set(size, DEAD);
+            return size++;
+        }
+
+        /**
+         * Fill a slot with a live organism, replacing any it held.
+         */
+        void set(int slot, Species type, int newAge, int newFood, int newRow, int newCol, int from)
+        {
+            die(slot, DEAD);
+            species.set(slot, type.ordinal());
+            age.set(slot, newAge);
+            food.set(slot, newFood);
+            row.set(slot, newRow);
+            col.set(slot, newCol);
+            alive.set(slot, ALIVE);
+            origin.set(slot, from);
+            counts[type.ordinal()]++;
+        }
+
+        /**
+         * Mark the organism in a slot as dead.
+         * @param slot The slot.
+         * @param state DEAD or GONE.
+         */
+        void die(int slot, int state)
+        {
+            if(alive.get(slot) == ALIVE) {
+                counts[species.get(slot)]--;
+            }
+            alive.set(slot, state);
+        }
+    }
+}
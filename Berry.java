@@ -1,78 +1,19 @@
-import java.util.List;
 import java.util.Random;
 
 public class Berry extends Organism {
-    private static final Random rand = new Random();
-    private static final int MAX_AGE = 5; // Define the age limit for berries.
-    private int age;
+    private static final Random rand = Randomizer.getRandom();
+    static final int MAX_AGE = 5; // Define the age limit for berries.
 
     public Berry(boolean randomAge, Location location) {
-        super(location);
-        this.age = 0;
-        if(randomAge) {
-            age = rand.nextInt(MAX_AGE);
-        }
-        else {
-            age = 0;
-        }
-    }
-    
-    @Override
-    public void act(Field currentField, Field nextFieldState) {
-        incrementAge();
-        if (isAlive()) {
-            // Check if this berry has been eaten by Hares or Bears.
-            Location foodLocation = findFood(currentField);
-            if (foodLocation != null) {
-                // If food (Hare or Bear) found, the berry is eaten and dies.
-                setDead();
-            } else {
-                // If berry isn't eaten, it tries to reproduce.
-                List<Location> freeLocations = nextFieldState.getFreeAdjacentLocations(getLocation());
-                if (!freeLocations.isEmpty()) {
-                    reproduce(nextFieldState, freeLocations); // Reproduce berry to a free location.
-                }
-
-                // Try to move to a free adjacent location or stay if no space is available.
-                Location nextLocation = findFreeSpace(nextFieldState);
-                if (nextLocation != null) {
-                    setLocation(nextLocation);
-                    nextFieldState.placeOrganism(this, nextLocation);
-                } else {
-                    // Overcrowding or no movement space, the berry dies.
-                    setDead();
-                }
-            }
-        }
+        this(randomAge, location, Parameters.DEFAULT);
     }
 
-    private Location findFood(Field field) {
-        for (Organism organism : field.getOrganisms()) {
-            if ((organism instanceof Hare || organism instanceof Bear) && organism.isAlive()) {
-                return organism.getLocation(); // Berry is eaten by Hares or Bears.
-            }
-        }
-        return null;
-    }
-
-    private Location findFreeSpace(Field nextFieldState) {
-        List<Location> freeLocations = nextFieldState.getFreeAdjacentLocations(getLocation());
-        if (!freeLocations.isEmpty()) {
-            return freeLocations.get(rand.nextInt(freeLocations.size())); // Randomly select a free location.
-        }
-        return null;
-    }
-
-    private void reproduce(Field nextFieldState, List<Location> freeLocations) {
-        Location birthLocation = freeLocations.get(rand.nextInt(freeLocations.size()));
-        Berry newBerry = new Berry(true, birthLocation); // Create a new berry.
-        nextFieldState.placeOrganism(newBerry, birthLocation); // Place the new berry in the field.
-    }
-
-    private void incrementAge() {
-        age++;
-        if (age > MAX_AGE) {
-            setDead(); // Berry dies if it exceeds the maximum age.
+    public Berry(boolean randomAge, Location location, Parameters parameters) {
+        super(Species.BERRY, location);
+        int age = 0;
+        if(randomAge) {
+            age = rand.nextInt(parameters.maxAge(Species.BERRY));
         }
+        setState(age, 0);
     }
 }
@@ -0,0 +1,236 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Save the complete state of a simulation to a file, and restore it,
+ * so that a long run can be stopped and resumed. A restored simulation
+ * continues exactly as the saved one would have, provided it is
+ * restored on a thread drawing from the same kind of stream: the
+ * random state saved and restored is that of the calling thread's
+ * stream, such as the one a Sweep binds for each run.
+ *
+ * The file is binary, with all values big-endian:
+ * <ul>
+ * <li>the magic number 0x424E4643 ("BNFC") and the format version;</li>
+ * <li>the step, and the state of the calling thread's random stream;</li>
+ * <li>the depth and width of the field, and the number of organisms;</li>
+ * <li>the parameters of the species, as a double for each trait of
+ *     each species, by species and then by trait, in ordinal order;</li>
+ * <li>for each organism, in the order in which they act: its cell as
+ *     a row-major index (long), its species' ordinal (byte, with the
+ *     high bit set if the organism is dead), its age (int) and its
+ *     food level (int).</li>
+ * </ul>
+ * Dead organisms are kept because, until the next step, they still
+ * occupy their cells and their slots in the order of acting.
+ *
+ * A checkpoint is written to a temporary file first, which then
+ * replaces the previous checkpoint, so a crash while saving leaves the
+ * previous checkpoint intact.
+ *
+ * @author David J. Barnes and Michael Kölling
+ * @version 7.1
+ */
+public class Checkpoint
+{
+    // The magic number starting a checkpoint.
+    private static final int MAGIC = 0x424E4643;
+    // The version of the format.
+    private static final int VERSION = 3;
+    private static final Species[] SPECIES = Species.values();
+    private static final Parameters.Trait[] TRAITS = Parameters.Trait.values();
+    // The number of bytes before the parameters, of the parameters,
+    // and of each organism.
+    private static final int HEADER_SIZE = 32;
+    private static final int PARAMETERS_SIZE = SPECIES.length * TRAITS.length * Double.BYTES;
+    private static final int RECORD_SIZE = 17;
+    // The bit of the species byte marking a dead organism.
+    private static final int DEAD = 0x80;
+    // The size of the buffer between the file and the field.
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Save the state of a simulation.
+     * @param file The file to write, replacing any existing contents.
+     * @param step The current step of the simulation.
+     * @param field The current state of the field.
+     * @throws IOException If the file cannot be written.
+     */
+    public static void save(Path file, int step, Field field) throws IOException
+    {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        try(FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                                                   StandardOpenOption.WRITE,
+                                                   StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            int population = field.getOrganisms().size();
+            buffer.putInt(MAGIC).putInt(VERSION)
+                  .putInt(step).putLong(Randomizer.getState())
+                  .putInt(field.getDepth()).putInt(field.getWidth()).putInt(population);
+            Parameters parameters = field.getParameters();
+            for(Species species : SPECIES) {
+                for(Parameters.Trait trait : TRAITS) {
+                    buffer.putDouble(parameters.get(species, trait));
+                }
+            }
+            for(int slot = 0; slot < population; slot++) {
+                Organism anOrganism = field.getOrganisms().get(slot);
+                if(buffer.remaining() < RECORD_SIZE) {
+                    drain(buffer, channel);
+                }
+                int species = anOrganism.getSpecies().ordinal();
+                buffer.putLong(field.getOccupiedCell(slot))
+                      .put((byte) (anOrganism.isAlive() ? species : species | DEAD))
+                      .putInt(anOrganism.getAge())
+                      .putInt(anOrganism.getFoodLevel());
+            }
+            drain(buffer, channel);
+            channel.force(false);
+        }
+        try {
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING,
+                       StandardCopyOption.ATOMIC_MOVE);
+        }
+        catch(AtomicMoveNotSupportedException e) {
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Restore the state of a simulation into a field, which must have
+     * the dimensions and the parameters of the saved one. The random
+     * stream of the calling thread is restored too.
+     * @param file The file to read.
+     * @param field The field to restore into. Its contents are replaced.
+     * @return The step at which the state was saved.
+     * @throws IOException If the file cannot be read, is not a
+     *                     checkpoint, or is for a field of another size
+     *                     or with other parameters.
+     */
+    public static int restore(Path file, Field field) throws IOException
+    {
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).limit(0);
+            fill(buffer, channel, HEADER_SIZE);
+            if(buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException(file + " is not a checkpoint of this version");
+            }
+            int step = buffer.getInt();
+            long randomState = buffer.getLong();
+            int depth = buffer.getInt();
+            int width = buffer.getInt();
+            if(depth != field.getDepth() || width != field.getWidth()) {
+                throw new IOException(file + " holds a " + depth + "x" + width + " field, not "
+                                      + field.getDepth() + "x" + field.getWidth());
+            }
+            int population = buffer.getInt();
+            fill(buffer, channel, PARAMETERS_SIZE);
+            Parameters parameters = field.getParameters();
+            for(Species species : SPECIES) {
+                for(Parameters.Trait trait : TRAITS) {
+                    double saved = buffer.getDouble();
+                    if(Double.compare(saved, parameters.get(species, trait)) != 0) {
+                        throw new IOException(file + " was saved with " + species + " "
+                                              + trait.label() + " " + saved + ", not "
+                                              + parameters.get(species, trait));
+                    }
+                }
+            }
+            if(population < 0 || population > (long) depth * width) {
+                throw new IOException(file + " is corrupt");
+            }
+            long expectedSize = HEADER_SIZE + PARAMETERS_SIZE + (long) population * RECORD_SIZE;
+            if(channel.size() < expectedSize) {
+                throw new EOFException("The checkpoint ends early");
+            }
+            if(channel.size() > expectedSize) {
+                throw new IOException(file + " is corrupt");
+            }
+            // Read and check every record before the field is touched,
+            // so that a bad file leaves the simulation as it was.
+            long[] cells = new long[population];
+            byte[] codes = new byte[population];
+            int[] ages = new int[population];
+            int[] foodLevels = new int[population];
+            for(int i = 0; i < population; i++) {
+                fill(buffer, channel, RECORD_SIZE);
+                cells[i] = buffer.getLong();
+                codes[i] = buffer.get();
+                ages[i] = buffer.getInt();
+                foodLevels[i] = buffer.getInt();
+                if(cells[i] < 0 || cells[i] >= (long) depth * width
+                   || (codes[i] & ~DEAD & 0xff) >= SPECIES.length || ages[i] < 0) {
+                    throw new IOException(file + " is corrupt");
+                }
+            }
+            long[] sorted = cells.clone();
+            Arrays.sort(sorted);
+            for(int i = 1; i < population; i++) {
+                if(sorted[i] == sorted[i - 1]) {
+                    throw new IOException(file + " holds two organisms in cell " + sorted[i]);
+                }
+            }
+
+            field.clear();
+            for(int i = 0; i < population; i++) {
+                Location location = field.getLocation((int) (cells[i] / width),
+                                                      (int) (cells[i] % width));
+                Organism anOrganism = Organism.create(SPECIES[codes[i] & ~DEAD & 0xff], false,
+                                                      location, parameters);
+                anOrganism.setState(ages[i], foodLevels[i]);
+                field.placeOrganism(anOrganism, location);
+                if((codes[i] & DEAD) != 0) {
+                    anOrganism.setDead();
+                }
+            }
+            // Creating the organisms drew random numbers, so the state
+            // of the generator is restored last.
+            Randomizer.setState(randomState);
+            return step;
+        }
+    }
+
+    /**
+     * Write the contents of a buffer to a channel and empty it.
+     * @param buffer The buffer, ready to be written to.
+     * @param channel The channel to write to.
+     * @throws IOException If the channel cannot be written.
+     */
+    private static void drain(ByteBuffer buffer, FileChannel channel) throws IOException
+    {
+        buffer.flip();
+        while(buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Make sure that a buffer holds at least the given number of
+     * unread bytes, reading more from a channel if necessary.
+     * @param buffer The buffer, ready to be read from.
+     * @param channel The channel to read from.
+     * @param needed The number of bytes needed.
+     * @throws IOException If the channel cannot be read, or ends early.
+     */
+    private static void fill(ByteBuffer buffer, FileChannel channel, int needed) throws IOException
+    {
+        if(buffer.remaining() < needed) {
+            buffer.compact();
+            while(buffer.position() < needed) {
+                if(channel.read(buffer) < 0) {
+                    throw new EOFException("The checkpoint ends early");
+                }
+            }
+            buffer.flip();
+        }
+    }
+}
@@ -6,7 +6,7 @@
  * the simulation.
  * 
  * @author David J. Barnes and Michael Kölling
- * @version 7.0
+ * @version 7.1
  */
 public class Counter
 {
@@ -41,14 +41,26 @@ public class Counter
         return count;
     }
 
+    /**
+     * Set the current count.
+     * @param count The number of this type that exist.
+     */
+    public void setCount(int count)
+    {
+        this.count = count;
+    }
+
     /**
      * Increment the current count by one.
+     * @deprecated Counts are now copied from the live counts of a
+     * field; use setCount instead.
      */
+    @Deprecated
     public void increment()
     {
         count++;
     }
-    
+
     /**
      * Reset the current count to zero.
      */
@@ -1,4 +1,3 @@
-import java.util.List;
 import java.util.Random;
 
 /**
@@ -13,132 +12,53 @@ public class Deer extends Organism
 {
     // Characteristics shared by all deer (class variables).
     // The age at which a hare can start to breed.
-    private static final int BREEDING_AGE = 2;
+    static final int BREEDING_AGE = 2;
     // The age to which a deer can live.
-    private static final int MAX_AGE = 12;
+    static final int MAX_AGE = 12;
     // The likelihood of a deer breeding.
-    private static final double BREEDING_PROBABILITY = 0.8;
+    static final double BREEDING_PROBABILITY = 0.8;
     // The max number of births.
-    private static final int MAX_LITTER_SIZE = 5;
-    // The food value of a single acorn. In effect, this is the
-    // number of steps a deer can go before it has to eat again.
-    private static final int ACORN_FOOD_VALUE = 12;
-    // A shared random number generator to control breeding.
+    static final int MAX_LITTER_SIZE = 5;
+    // A shared random number generator to set up new animals.
     private static final Random rand = Randomizer.getRandom();
-    
-    // Individual characteristics (instance fields).
-    
-    // The deer's age.
-    private int age;
-    private int foodLevel;
 
     /**
      * Create a new deer. A deer may be created with age
      * zero (a new born) or with a random age.
+     * The default parameters of the species are used.
      * 
      * @param randomAge If true, the rabbit will have a random age.
      * @param location The location within the field.
      */
     public Deer(boolean randomAge, Location location)
     {
-        super(location);
-        age = 0;
-        if(randomAge) {
-            age = rand.nextInt(MAX_AGE);
-        }
+        this(randomAge, location, Parameters.DEFAULT);
     }
-    
+
     /**
-     * This is what the deer does most of the time - it runs 
-     * around. Sometimes it will breed or die of old age.
-     * @param currentField The field occupied.
-     * @param nextFieldState The updated field.
+     * Create a new deer. A deer may be created with age
+     * zero (a new born) or with a random age.
+     * 
+     * @param randomAge If true, the rabbit will have a random age.
+     * @param location The location within the field.
+     * @param parameters The parameters of the species.
      */
-    public void act(Field currentField, Field nextFieldState)
+    public Deer(boolean randomAge, Location location, Parameters parameters)
     {
-        incrementAge();
-        if(isAlive()) {
-            List<Location> freeLocations = 
-                nextFieldState.getFreeAdjacentLocations(getLocation());
-            if(!freeLocations.isEmpty()) {
-                giveBirth(nextFieldState, freeLocations);
-            }
-            // Try to move into a free location.
-            if(! freeLocations.isEmpty()) {
-                Location nextLocation = freeLocations.get(0);
-                setLocation(nextLocation);
-                nextFieldState.placeOrganism(this, nextLocation);
-            }
-            else {
-                // Overcrowding.
-                setDead();
-            }
+        super(Species.DEER, location);
+        int age = 0;
+        if(randomAge) {
+            age = rand.nextInt(parameters.maxAge(Species.DEER));
         }
+        setState(age, 0);
     }
 
     @Override
     public String toString() {
         return "Deer{" +
-                "age=" + age +
+                "age=" + getAge() +
                 ", alive=" + isAlive() +
                 ", location=" + getLocation() +
                 '}';
     }
-
-    /**
-     * Increase the age.
-     * This could result in the rabbit's death.
-     */
-    private void incrementAge()
-    {
-        age++;
-        if(age > MAX_AGE) {
-            setDead();
-        }
-    }
-    
-    /**
-     * Check whether or not this deer is to give birth at this step.
-     * New births will be made into free adjacent locations.
-     * @param freeLocations The locations that are free in the current field.
-     */
-    private void giveBirth(Field nextFieldState, List<Location> freeLocations)
-    {
-        // New rabbits are born into adjacent locations.
-        // Get a list of adjacent free locations.
-        int births = breed();
-        if(births > 0) {
-            for (int b = 0; b < births && !freeLocations.isEmpty(); b++) {
-                Location loc = freeLocations.remove(0);
-                Deer young = new Deer(false, loc);
-                nextFieldState.placeOrganism(young, loc);
-            }
-        }
-    }
-        
-    /**
-     * Generate a number representing the number of births,
-     * if it can breed.
-     * @return The number of births (may be zero).
-     */
-    private int breed()
-    {
-        int births;
-        if(canBreed() && rand.nextDouble() <= BREEDING_PROBABILITY) {
-            births = rand.nextInt(MAX_LITTER_SIZE) + 1;
-        }
-        else {
-            births = 0;
-        }
-        return births;
-    }
-
-    /**
-     * A deer can breed if it has reached the breeding age.
-     * @return true if the rabbit can breed, false otherwise.
-     */
-    private boolean canBreed()
-    {
-        return age >= BREEDING_AGE;
-    }
 }
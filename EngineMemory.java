@@ -0,0 +1,70 @@
+/**
+ * Where ArrayEngine keeps its state: long-indexed arrays of ints, for
+ * the grids and for the columns of organism values.
+ *
+ * HEAP keeps them in ordinary Java arrays, which limits a field to
+ * fewer than 2^31 cells. A memory that keeps them outside the heap,
+ * such as SegmentMemory in the offheap module, allows larger fields and
+ * keeps the garbage collector from scanning them.
+ *
+ * @author David J. Barnes and Michael Kölling
+ * @version 7.1
+ */
+public interface EngineMemory extends AutoCloseable
+{
+    // Arrays on the heap. There is nothing to close.
+    EngineMemory HEAP = new HeapMemory();
+
+    /**
+     * Allocate an array of ints, all zero.
+     * @param length The number of elements.
+     * @return The array.
+     */
+    Ints ints(long length);
+
+    /**
+     * Release all the arrays allocated from this memory. They must not
+     * be used afterwards.
+     */
+    @Override
+    void close();
+
+    /**
+     * A long-indexed array of ints.
+     */
+    interface Ints
+    {
+        /**
+         * @return The number of elements.
+         */
+        long length();
+
+        /**
+         * @param index The index of an element.
+         * @return The element.
+         */
+        int get(long index);
+
+        /**
+         * @param index The index of an element.
+         * @param value Its new value.
+         */
+        void set(long index, int value);
+
+        /**
+         * Set a range of elements to one value.
+         * @param from The first element set.
+         * @param to The element after the last one set.
+         * @param value The value.
+         */
+        void fill(long from, long to, int value);
+
+        /**
+         * Return an array of another length holding the elements of this
+         * one, padded with zeros. This array must not be used afterwards.
+         * @param length The new length.
+         * @return The new array.
+         */
+        Ints resize(long length);
+    }
+}
@@ -3,21 +3,72 @@ import java.util.*;
 /**
  * Represent a rectangular grid of field positions.
  * Each position is able to store a single animal/object.
- * 
+ *
+ * The grid is stored in square chunks of cells, which are only
+ * allocated where organisms are placed. A chunk that stays empty from
+ * one clear() to the next is released, so the memory used grows with
+ * the population rather than with the area, and a very large, mostly
+ * empty field is cheap. Neighbour queries read across the edges of
+ * chunks, so they are as fast at a chunk's edge as inside it.
+ *
+ * An organism placed over another takes the replaced one's place in
+ * getOrganisms(), rather than being appended to the end as it was in
+ * version 7.0. Organisms act in that order, so a run with a given seed
+ * no longer follows the trajectory it followed in version 7.0, although
+ * runs remain repeatable.
+ *
  * @author David J. Barnes and Michael Kölling
- * @version 7.0
+ * @version 7.1
  */
 public class Field
 {
     // A random number generator for providing random locations.
     private static final Random rand = Randomizer.getRandom();
-    
+    // The number of species, and so of per-species occupancy bitsets.
+    private static final int SPECIES_COUNT = Species.values().length;
+
     // The dimensions of the field.
     private final int depth, width;
-    // Animals mapped by location.
-    private final Map<Location, Organism> organism = new HashMap<>();
-    // The animals.
-    private final List<Organism> organisms = new ArrayList<>();
+    // The number of chunks across the field.
+    private final int chunkCols;
+    // The allocated chunks, row by row, or null where none is.
+    private final Chunk[] chunks;
+    // The allocated chunks, in no particular order.
+    private final List<Chunk> allocated = new ArrayList<>();
+    // The canonical locations, shared by fields built from one another.
+    private final Layout layout;
+    // The animals, packed into the first 'population' registry slots.
+    private Organism[] organisms = new Organism[16];
+    // The cell occupied by the animal in each registry slot, with its
+    // row in the high half and its column in the low half.
+    private long[] occupiedCells = new long[16];
+    // The number of registry slots in use.
+    private int population;
+    // The number of live organisms of each species, indexed by ordinal.
+    private final int[] counts = new int[SPECIES_COUNT];
+    // The parameters of the species living in the field.
+    private Parameters parameters = Parameters.DEFAULT;
+    // Whether organisms are being placed from several threads at once.
+    // While true, placement only writes cells and the registry is stale.
+    private boolean concurrentPlacement;
+    // Whether organisms of this field may die on several threads at once.
+    // While true, the counts are stale.
+    private boolean countingSuspended;
+    // A read-only list view of the registry.
+    private final List<Organism> organismList = new AbstractList<>() {
+        @Override
+        public Organism get(int index)
+        {
+            Objects.checkIndex(index, population);
+            return organisms[index];
+        }
+
+        @Override
+        public int size()
+        {
+            return population;
+        }
+    };
 
     /**
      * Represent a field of the given dimensions.
@@ -26,27 +77,314 @@ public class Field
      */
     public Field(int depth, int width)
     {
+        this(depth, width, new Layout(chunksAcross(depth) * (long) chunksAcross(width)));
+    }
+
+    /**
+     * Represent an empty field with the same dimensions and parameters
+     * as another. The two fields share their canonical locations, so a
+     * location obtained from either is the same object in both.
+     * @param layout The field whose dimensions are to be used.
+     */
+    public Field(Field layout)
+    {
+        this(layout.depth, layout.width, layout.layout);
+        parameters = layout.parameters;
+    }
+
+    /**
+     * Represent a field of the given dimensions.
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     * @param layout The table of canonical locations.
+     */
+    private Field(int depth, int width, Layout layout)
+    {
+        if(depth <= 0 || width <= 0) {
+            throw new IllegalArgumentException("Invalid field: " + depth + "x" + width);
+        }
         this.depth = depth;
         this.width = width;
+        this.layout = layout;
+        chunkCols = chunksAcross(width);
+        chunks = new Chunk[chunksAcross(depth) * chunkCols];
     }
 
     /**
      * Place an animal at the given location.
      * If there is already an animal at the location it will be lost.
+     * The new animal takes over the registry slot of the one it replaces,
+     * and so its place in the acting order, which makes placement a
+     * constant-time operation. The live counts and
+     * the occupancy bitsets are updated for both animals.
      * @param anAnimal The animal to be placed.
      * @param location Where to place the animal.
      */
     public void placeOrganism(Organism anOrganism, Location location)
     {
         assert location != null;
-        Object other = organism.get(location);
-        if(other != null) {
-            organisms.remove(other);
+        int row = location.row();
+        int col = location.col();
+        Chunk chunk = chunkFor(row, col);
+        int cell = Chunk.cellOf(row, col);
+        Organism replaced = chunk.cells[cell];
+        chunk.cells[cell] = anOrganism;
+        if(isCounting()) {
+            if(replaced != null) {
+                chunk.unmark(row, col, replaced.getSpecies().ordinal());
+            }
+            if(anOrganism.isAlive()) {
+                chunk.mark(row, col, anOrganism.getSpecies().ordinal());
+            }
+        }
+        if(replaced != null && replaced != anOrganism && replaced.getField() == this) {
+            replaced.setField(null);
+            uncount(replaced);
+        }
+        if(anOrganism.isAlive() && anOrganism.getField() != this) {
+            anOrganism.setField(this);
+            if(isCounting()) {
+                counts[anOrganism.getSpecies().ordinal()]++;
+            }
+        }
+        if(!concurrentPlacement) {
+            register(anOrganism, chunk, row, col);
+        }
+    }
+
+    /**
+     * Record that an organism counted as alive by this field has died.
+     * @param anOrganism The organism that has died.
+     */
+    void organismDied(Organism anOrganism)
+    {
+        uncount(anOrganism);
+        Location location = anOrganism.getLocation();
+        if(isCounting() && location != null) {
+            int row = location.row();
+            int col = location.col();
+            Chunk chunk = chunkAt(row, col);
+            if(chunk != null && chunk.cells[Chunk.cellOf(row, col)] == anOrganism) {
+                chunk.unmark(row, col, anOrganism.getSpecies().ordinal());
+            }
+        }
+    }
+
+    /**
+     * Remove an organism from the live counts.
+     * @param anOrganism The organism no longer to be counted.
+     */
+    private void uncount(Organism anOrganism)
+    {
+        if(isCounting()) {
+            counts[anOrganism.getSpecies().ordinal()]--;
+        }
+    }
+
+    /**
+     * @return Whether the live counts and the occupancy bitsets are
+     *         being kept up to date.
+     */
+    private boolean isCounting()
+    {
+        return !concurrentPlacement && !countingSuspended;
+    }
+
+    /**
+     * Record an organism in the registry slot of its cell, claiming a
+     * new slot if the cell had none.
+     * @param anOrganism The organism occupying the cell.
+     * @param chunk The chunk holding the cell.
+     * @param row The row of the cell.
+     * @param col The column of the cell.
+     */
+    private void register(Organism anOrganism, Chunk chunk, int row, int col)
+    {
+        int cell = Chunk.cellOf(row, col);
+        int slot = chunk.slots[cell];
+        if(slot < 0) {
+            if(population == organisms.length) {
+                organisms = Arrays.copyOf(organisms, population * 2);
+                occupiedCells = Arrays.copyOf(occupiedCells, population * 2);
+            }
+            slot = population++;
+            chunk.slots[cell] = slot;
+            chunk.occupants++;
+            occupiedCells[slot] = (long) row << 32 | col;
+        }
+        organisms[slot] = anOrganism;
+    }
+
+    /**
+     * Allow organisms to be placed from several threads at once.
+     * Until endConcurrentPlacement is called, placement only writes the
+     * cell, so threads placing into different cells do not interfere,
+     * but neither getOrganisms(), the live counts nor the occupancy
+     * bitsets reflect the placements, or the deaths of the organisms
+     * placed. Free cells are found from the cells themselves meanwhile.
+     */
+    void beginConcurrentPlacement()
+    {
+        concurrentPlacement = true;
+    }
+
+    /**
+     * Return to single-threaded placement and rebuild the registry,
+     * the live counts and the occupancy bitsets from the cells.
+     * The organisms are registered in cell order. Only the allocated
+     * chunks are examined.
+     */
+    void endConcurrentPlacement()
+    {
+        concurrentPlacement = false;
+        for(int slot = 0; slot < population; slot++) {
+            long cell = occupiedCells[slot];
+            int row = (int) (cell >>> 32);
+            int col = (int) cell;
+            chunkAt(row, col).slots[Chunk.cellOf(row, col)] = -1;
+        }
+        Arrays.fill(organisms, 0, population, null);
+        population = 0;
+        // Visit the chunks a band of chunk rows at a time, and each band
+        // a row of cells at a time, to register the cells in row-major order.
+        allocated.sort(Comparator.comparingInt(chunk -> chunk.index));
+        int first = 0;
+        while(first < allocated.size()) {
+            int band = allocated.get(first).index / chunkCols;
+            int last = first;
+            while(last < allocated.size() && allocated.get(last).index / chunkCols == band) {
+                allocated.get(last++).occupants = 0;
+            }
+            int lastRow = Math.min((band + 1) * Chunk.SIZE, depth);
+            for(int row = band * Chunk.SIZE; row < lastRow; row++) {
+                for(int i = first; i < last; i++) {
+                    Chunk chunk = allocated.get(i);
+                    int firstCol = chunk.index % chunkCols * Chunk.SIZE;
+                    int lastCol = Math.min(firstCol + Chunk.SIZE, width);
+                    for(int col = firstCol; col < lastCol; col++) {
+                        Organism anOrganism = chunk.cells[Chunk.cellOf(row, col)];
+                        if(anOrganism != null) {
+                            register(anOrganism, chunk, row, col);
+                        }
+                    }
+                }
+            }
+            first = last;
+        }
+        recount();
+    }
+
+    /**
+     * Stop keeping the live counts and the occupancy bitsets up to
+     * date, so that organisms of this field may die on several threads
+     * at once. The bitsets may then still mark the cells of organisms
+     * that have died, so they are only used to find candidates, each of
+     * which is checked to be alive.
+     */
+    void suspendCounting()
+    {
+        countingSuspended = true;
+    }
+
+    /**
+     * Return to keeping the live counts and the occupancy bitsets up to
+     * date, recounting the live organisms of the registry.
+     */
+    void resumeCounting()
+    {
+        countingSuspended = false;
+        recount();
+    }
+
+    /**
+     * Count the live organisms of the registry afresh, and mark their
+     * cells in the occupancy bitsets.
+     */
+    private void recount()
+    {
+        Arrays.fill(counts, 0);
+        for(Chunk chunk : allocated) {
+            chunk.clearBits();
+        }
+        for(int slot = 0; slot < population; slot++) {
+            Organism anOrganism = organisms[slot];
+            if(anOrganism.isAlive()) {
+                int ordinal = anOrganism.getSpecies().ordinal();
+                counts[ordinal]++;
+                long cell = occupiedCells[slot];
+                int row = (int) (cell >>> 32);
+                int col = (int) cell;
+                chunkAt(row, col).mark(row, col, ordinal);
+            }
+        }
+    }
+
+    /**
+     * Return the chunk holding a cell, if one is allocated.
+     * @param row The row of the cell.
+     * @param col The column of the cell.
+     * @return The chunk, or null if the cell's chunk is not allocated.
+     */
+    private Chunk chunkAt(int row, int col)
+    {
+        return chunks[(row >>> Chunk.SHIFT) * chunkCols + (col >>> Chunk.SHIFT)];
+    }
+
+    /**
+     * Return the chunk holding a cell, allocating it if need be.
+     * @param row The row of the cell.
+     * @param col The column of the cell.
+     * @return The chunk.
+     */
+    private Chunk chunkFor(int row, int col)
+    {
+        Chunk chunk = chunkAt(row, col);
+        if(chunk == null) {
+            chunk = allocate((row >>> Chunk.SHIFT) * chunkCols + (col >>> Chunk.SHIFT));
+        }
+        return chunk;
+    }
+
+    /**
+     * Allocate a chunk. Threads placing organisms concurrently may ask
+     * for the same chunk at once, so only the first allocates it.
+     * @param index The index of the chunk.
+     * @return The chunk.
+     */
+    private synchronized Chunk allocate(int index)
+    {
+        Chunk chunk = chunks[index];
+        if(chunk == null) {
+            chunk = new Chunk(index, layout.acquire(index));
+            chunks[index] = chunk;
+            allocated.add(chunk);
+        }
+        return chunk;
+    }
+
+    /**
+     * Return whether an area of the field holds no organisms, live or
+     * dead, so that there is nothing in it to act. Only the chunks
+     * overlapping the area are examined.
+     * @param firstRow The first row of the area.
+     * @param firstCol The first column of the area.
+     * @param lastRow The row after the last row of the area.
+     * @param lastCol The column after the last column of the area.
+     * @return true if the area is empty.
+     */
+    boolean isEmpty(int firstRow, int firstCol, int lastRow, int lastCol)
+    {
+        for(int chunkRow = firstRow >>> Chunk.SHIFT; chunkRow <= (lastRow - 1) >>> Chunk.SHIFT; chunkRow++) {
+            for(int chunkCol = firstCol >>> Chunk.SHIFT; chunkCol <= (lastCol - 1) >>> Chunk.SHIFT; chunkCol++) {
+                Chunk chunk = chunks[chunkRow * chunkCols + chunkCol];
+                if(chunk != null && chunk.occupants > 0) {
+                    return false;
+                }
+            }
         }
-        organism.put(location, anOrganism);
-        organisms.add(anOrganism);
+        return true;
     }
-    
+
     /**
      * Return the animal at the given location, if any.
      * @param location Where in the field.
@@ -54,9 +392,63 @@ public class Field
      */
     public Organism getOrganismAt(Location location)
     {
-        return organism.get(location);
+        return getOrganismAt(location.row(), location.col());
+    }
+
+    /**
+     * Return the animal at the given position, if any.
+     * Unlike getOrganismAt(Location), this needs no Location object.
+     * @param row The row of the position.
+     * @param col The column of the position.
+     * @return The animal at the given position, or null if there is none.
+     */
+    public Organism getOrganismAt(int row, int col)
+    {
+        Chunk chunk = chunkAt(row, col);
+        return chunk == null ? null : chunk.cells[Chunk.cellOf(row, col)];
+    }
+
+    /**
+     * Return the cell of the organism in a registry slot. The slots
+     * are those of getOrganisms(), in the same order.
+     * @param slot The index of the organism in getOrganisms().
+     * @return The row-major index of the organism's cell:
+     *         row * width + col.
+     */
+    long getOccupiedCell(int slot)
+    {
+        Objects.checkIndex(slot, population);
+        long cell = occupiedCells[slot];
+        return (cell >>> 32) * width + (int) cell;
+    }
+
+    /**
+     * Return the canonical location of the given position.
+     * Repeated calls for the same position return the same object,
+     * so locations from this field can be compared by identity.
+     * (When organisms act in parallel, two threads that first use a
+     * cell at the same moment may each get their own, equal, object.
+     * Nor are the locations of cells in chunks that are not allocated
+     * kept, so each call for one of them returns a new, equal, object.)
+     * @param row The row of the position.
+     * @param col The column of the position.
+     * @return The location of the position.
+     */
+    public Location getLocation(int row, int col)
+    {
+        Chunk chunk = chunkAt(row, col);
+        if(chunk == null) {
+            return new Location(row, col);
+        }
+        int cell = Chunk.cellOf(row, col);
+        Location location = chunk.locations[cell];
+        if(location == null) {
+            location = new Location(row, col);
+            chunk.locations[cell] = location;
+        }
+        return location;
     }
-    
+
     /**
      * Get a shuffled list of the free adjacent locations.
      * @param location Get locations adjacent to this.
@@ -64,17 +456,25 @@ public class Field
      */
     public List<Location> getFreeAdjacentLocations(Location location)
     {
-        List<Location> free = new LinkedList<>();
-        List<Location> adjacent = getAdjacentLocations(location);
-        for(Location next : adjacent) {
-            Organism anOrganism = organism.get(next);
-            if(anOrganism == null) {
-                free.add(next);
-            }
-            else if(!anOrganism.isAlive()) {
-                free.add(next);
-            }
-        }
+        return toList(getFreeAdjacentLocations(location, new Neighbours()));
+    }
+
+    /**
+     * Fill a cursor with the free locations adjacent to the given one,
+     * in random order. A location is free if it is empty or holds a
+     * dead organism. The free cells are found with a few word operations
+     * on the occupancy bitset, except while organisms are being placed
+     * concurrently, when the cells are examined instead.
+     * @param location Get locations adjacent to this.
+     * @param free The cursor to fill. Its previous contents are discarded.
+     * @return The filled cursor.
+     */
+    public Neighbours getFreeAdjacentLocations(Location location, Neighbours free)
+    {
+        int row = location.row();
+        int col = location.col();
+        int taken = concurrentPlacement ? liveBlock(row, col) : block(-1, row, col);
+        free.fill(this, row, col, inside(row, col) & ~taken, rand);
         return free;
     }
 
@@ -87,70 +487,318 @@ public class Field
      */
     public List<Location> getAdjacentLocations(Location location)
     {
-        // The list of locations to be returned.
-        List<Location> locations = new ArrayList<>();
-        if(location != null) {
-            int row = location.row();
-            int col = location.col();
-            for(int roffset = -1; roffset <= 1; roffset++) {
-                int nextRow = row + roffset;
-                if(nextRow >= 0 && nextRow < depth) {
-                    for(int coffset = -1; coffset <= 1; coffset++) {
-                        int nextCol = col + coffset;
-                        // Exclude invalid locations and the original location.
-                        if(nextCol >= 0 && nextCol < width && (roffset != 0 || coffset != 0)) {
-                            locations.add(new Location(nextRow, nextCol));
+        return toList(getAdjacentLocations(location, new Neighbours()));
+    }
+
+    /**
+     * Fill a cursor with the locations adjacent to the given one,
+     * in random order. The cursor will not include the location itself.
+     * All locations will lie within the grid.
+     * @param location The location from which to generate adjacencies.
+     * @param adjacent The cursor to fill. Its previous contents are discarded.
+     * @return The filled cursor.
+     */
+    public Neighbours getAdjacentLocations(Location location, Neighbours adjacent)
+    {
+        int row = location.row();
+        int col = location.col();
+        // The cells come out in a random order. Several other methods
+        // rely on that.
+        adjacent.fill(this, row, col, inside(row, col), rand);
+        return adjacent;
+    }
+
+    /**
+     * Fill a cursor with the locations adjacent to the given one that
+     * are marked as holding a live organism of one of the given species,
+     * in random order. While counting is suspended, some of them may
+     * hold organisms that have since died, so check each one found.
+     * @param location The location from which to generate adjacencies.
+     * @param mask The species wanted, as a mask of Species bits,
+     *             such as Species.preyMask().
+     * @param adjacent The cursor to fill. Its previous contents are discarded.
+     * @return The filled cursor.
+     */
+    public Neighbours getAdjacentOrganisms(Location location, int mask, Neighbours adjacent)
+    {
+        int row = location.row();
+        int col = location.col();
+        adjacent.fill(this, row, col, speciesBlock(mask, row, col), rand);
+        return adjacent;
+    }
+
+    /**
+     * Return the cells of the 3x3 block centred on a cell that lie
+     * within the field, other than the centre itself.
+     * @param row The row of the centre.
+     * @param col The column of the centre.
+     * @return The cells, as a block mask of Neighbours.
+     */
+    private int inside(int row, int col)
+    {
+        int cols = 7;
+        if(col == 0) {
+            cols &= ~1;
+        }
+        if(col == width - 1) {
+            cols &= ~4;
+        }
+        int block = cols << 3;
+        if(row > 0) {
+            block |= cols;
+        }
+        if(row < depth - 1) {
+            block |= cols << 6;
+        }
+        return block & ~Neighbours.CENTRE;
+    }
+
+    /**
+     * Read the 3x3 block centred on a cell out of an occupancy bitset.
+     * @param ordinal The ordinal of the species whose bitset is read,
+     *                or -1 for that of all live organisms.
+     * @param row The row of the centre.
+     * @param col The column of the centre.
+     * @return The marked cells, as a block mask of Neighbours.
+     */
+    private int block(int ordinal, int row, int col)
+    {
+        int chunkRow = row & Chunk.MASK;
+        int offset = col & Chunk.MASK;
+        if(chunkRow != 0 && chunkRow != Chunk.MASK && offset != 0 && offset != Chunk.MASK) {
+            // The block lies within one chunk, so read three of its words.
+            Chunk chunk = chunkAt(row, col);
+            if(chunk == null) {
+                return 0;
+            }
+            long[] bits = ordinal < 0 ? chunk.occupied : chunk.occupiedBy[ordinal];
+            int shift = offset - 1;
+            return (int) (bits[chunkRow - 1] >>> shift) & 7
+                   | ((int) (bits[chunkRow] >>> shift) & 7) << 3
+                   | ((int) (bits[chunkRow + 1] >>> shift) & 7) << 6;
+        }
+        int block = window(ordinal, row, col) << 3;
+        if(row > 0) {
+            block |= window(ordinal, row - 1, col);
+        }
+        if(row < depth - 1) {
+            block |= window(ordinal, row + 1, col) << 6;
+        }
+        return block;
+    }
+
+    /**
+     * Read the three cells of a row centred on a column out of an
+     * occupancy bitset. A cell at the edge of a chunk is read together
+     * with its neighbour in the next chunk. Columns outside the field,
+     * and cells of chunks that are not allocated, read as unmarked.
+     * @param ordinal The ordinal of the species whose bitset is read,
+     *                or -1 for that of all live organisms.
+     * @param row The row.
+     * @param col The column of the middle cell.
+     * @return The marked cells: bit 0 for col - 1, up to bit 2 for col + 1.
+     */
+    private int window(int ordinal, int row, int col)
+    {
+        int chunkCol = col >>> Chunk.SHIFT;
+        long word = word(ordinal, row, chunkCol);
+        int offset = col & Chunk.MASK;
+        if(offset == 0) {
+            int window = (int) (word << 1) & 6;
+            if(col > 0) {
+                window |= (int) (word(ordinal, row, chunkCol - 1) >>> Chunk.MASK);
+            }
+            return window;
+        }
+        if(offset == Chunk.MASK) {
+            int window = (int) (word >>> (Chunk.MASK - 1)) & 3;
+            if(col + 1 < width) {
+                window |= (int) (word(ordinal, row, chunkCol + 1) & 1) << 2;
+            }
+            return window;
+        }
+        return (int) (word >>> (offset - 1)) & 7;
+    }
+
+    /**
+     * Return the word of an occupancy bitset holding one row of a chunk.
+     * @param ordinal The ordinal of the species whose bitset is read,
+     *                or -1 for that of all live organisms.
+     * @param row The row.
+     * @param chunkCol The column of the chunk.
+     * @return The word, or 0 if the chunk is not allocated.
+     */
+    private long word(int ordinal, int row, int chunkCol)
+    {
+        Chunk chunk = chunks[(row >>> Chunk.SHIFT) * chunkCols + chunkCol];
+        if(chunk == null) {
+            return 0;
+        }
+        long[] bits = ordinal < 0 ? chunk.occupied : chunk.occupiedBy[ordinal];
+        return bits[row & Chunk.MASK];
+    }
+
+    /**
+     * Return the cells around a cell marked as holding live organisms
+     * of the given species.
+     * @param mask The species, as a mask of Species bits.
+     * @param row The row of the centre.
+     * @param col The column of the centre.
+     * @return The marked cells, as a block mask of Neighbours.
+     */
+    private int speciesBlock(int mask, int row, int col)
+    {
+        int block = 0;
+        for(int species = mask; species != 0; species &= species - 1) {
+            block |= block(Integer.numberOfTrailingZeros(species), row, col);
+        }
+        return block & ~Neighbours.CENTRE;
+    }
+
+    /**
+     * Find the cells around a cell that hold live organisms by examining
+     * the cells themselves, for when the occupancy bitset is stale.
+     * @param row The row of the centre.
+     * @param col The column of the centre.
+     * @return The occupied cells, as a block mask of Neighbours.
+     */
+    private int liveBlock(int row, int col)
+    {
+        int block = 0;
+        for(int roffset = -1; roffset <= 1; roffset++) {
+            int nextRow = row + roffset;
+            if(nextRow >= 0 && nextRow < depth) {
+                for(int coffset = -1; coffset <= 1; coffset++) {
+                    int nextCol = col + coffset;
+                    if(nextCol >= 0 && nextCol < width) {
+                        Organism anOrganism = getOrganismAt(nextRow, nextCol);
+                        if(anOrganism != null && anOrganism.isAlive()) {
+                            block |= 1 << ((roffset + 1) * 3 + coffset + 1);
                         }
                     }
                 }
             }
-            
-            // Shuffle the list. Several other methods rely on the list
-            // being in a random order.
-            Collections.shuffle(locations, rand);
+        }
+        return block;
+    }
+
+    /**
+     * Drain a cursor into a new list.
+     * @param neighbours The cursor to drain.
+     * @return The remaining locations of the cursor, in order.
+     */
+    private static List<Location> toList(Neighbours neighbours)
+    {
+        List<Location> locations = new ArrayList<>(neighbours.remaining());
+        while(neighbours.hasNext()) {
+            locations.add(neighbours.next());
         }
         return locations;
     }
 
     /**
-     * Print out the number of foxes and rabbits in the field.
+     * Return whether a live organism of one of the given species
+     * occupies one of the locations adjacent to the given one.
+     * The candidates are read from the occupancy bitsets of the wanted
+     * species, so only organisms of those species are looked at.
+     * @param location The location whose neighbours are examined.
+     * @param mask The species wanted, as a mask of Species bits,
+     *             such as Species.eaterMask().
+     * @return true if a live organism of a wanted species is adjacent.
      */
-    public void fieldStats()
+    public boolean isAdjacent(Location location, int mask)
     {
-        int numWolves = 0, numHares = 0, numDeers = 0, numOwls = 0, numBears = 0;
-        int numBerries = 0, numAcorns = 0;
-    
-        for (Object obj : organism.values()) {
-            if (obj instanceof Organism organism && organism.isAlive()) {
-                switch (organism) {
-                    case Wolf w -> numWolves++;
-                    case Hare h -> numHares++;
-                    case Deer d -> numDeers++;
-                    case Owl o -> numOwls++;
-                    case Bear b -> numBears++;
-                    case Berry b -> numBerries++;
-                    case Acorn a -> numAcorns++;
-                    default -> System.out.println("Unhandled animal: " + organism.getClass().getSimpleName());
-                }
+        int row = location.row();
+        int col = location.col();
+        for(int block = speciesBlock(mask, row, col); block != 0; block &= block - 1) {
+            int bit = Integer.numberOfTrailingZeros(block);
+            if(getOrganismAt(row + bit / 3 - 1, col + bit % 3 - 1).isAlive()) {
+                return true;
             }
         }
+        return false;
+    }
+
+    /**
+     * Return the number of live organisms of a species in the field.
+     * The counts are kept up to date as organisms are placed, replaced
+     * and die, so no cells need to be examined.
+     * @param species The species to count.
+     * @return The number of live organisms of the species.
+     */
+    public int getCount(Species species)
+    {
+        return counts[species.ordinal()];
+    }
+
+    /**
+     * Describe the number of each species alive in the field.
+     * @return The counts, on one line.
+     */
+    public String describe()
+    {
         StringBuilder text = new StringBuilder();
-        text.append("Hares: " + numHares);
-        text.append("  Wolves: " + numWolves);
-        text.append("  Deers: " + numDeers);
-        text.append("  Owls: " + numOwls);
-        text.append("  Bears: " + numBears);
-        text.append("  Berries: " + numBerries);
-        text.append("  Acorns: " + numAcorns);
-        System.out.println(text);
+        text.append("Hares: " + getCount(Species.HARE));
+        text.append("  Wolves: " + getCount(Species.WOLF));
+        text.append("  Deers: " + getCount(Species.DEER));
+        text.append("  Owls: " + getCount(Species.OWL));
+        text.append("  Bears: " + getCount(Species.BEAR));
+        text.append("  Berries: " + getCount(Species.BERRY));
+        text.append("  Acorns: " + getCount(Species.ACORN));
+        return text.toString();
     }
-    
+
+    /**
+     * Print out the number of each species alive in the field.
+     * @deprecated A field should not write to standard output; print
+     * describe() where the output is wanted instead.
+     */
+    @Deprecated
+    public void fieldStats()
+    {
+        System.out.println(describe());
+    }
+
     /**
      * Empty the field.
+     * Only the occupied cells are visited, so the cost is proportional
+     * to the population rather than to the area of the field. The
+     * chunks that were filled since the last clear are kept, which lets
+     * a field be reused for a later step; those that were not are
+     * released.
      */
     public void clear()
     {
-        organism.clear();
+        for(int slot = 0; slot < population; slot++) {
+            long occupiedCell = occupiedCells[slot];
+            int row = (int) (occupiedCell >>> 32);
+            int col = (int) occupiedCell;
+            Chunk chunk = chunkAt(row, col);
+            int cell = Chunk.cellOf(row, col);
+            if(chunk.cells[cell] != null) {
+                chunk.unmark(row, col, chunk.cells[cell].getSpecies().ordinal());
+            }
+            chunk.cells[cell] = null;
+            chunk.slots[cell] = -1;
+            if(organisms[slot].getField() == this) {
+                organisms[slot].setField(null);
+            }
+        }
+        Arrays.fill(organisms, 0, population, null);
+        population = 0;
+        Arrays.fill(counts, 0);
+        Iterator<Chunk> chunkIterator = allocated.iterator();
+        while(chunkIterator.hasNext()) {
+            Chunk chunk = chunkIterator.next();
+            if(chunk.occupants == 0) {
+                chunks[chunk.index] = null;
+                layout.release(chunk.index);
+                chunkIterator.remove();
+            }
+            else {
+                chunk.occupants = 0;
+            }
+        }
     }
 
     /**
@@ -159,31 +807,27 @@ public class Field
      */
     public boolean isViable()
     {
-        boolean hareFound = false;
-        boolean wolfFound = false;
-        Iterator<Organism> it = organisms.iterator();
-        while(it.hasNext() && ! (hareFound && wolfFound)) {
-            Organism anOrganism = it.next();
-            if(anOrganism instanceof Hare hare) {
-                if(hare.isAlive()) {
-                    hareFound = true;
-                }
-            }
-            else if(anOrganism instanceof Wolf wolf) {
-                if(wolf.isAlive()) {
-                    wolfFound = true;
-                }
-            }
-        }
-        return hareFound && wolfFound;
+        return isViable(Viability.HARES_AND_WOLVES);
     }
-    
+
+    /**
+     * Return whether the population of the field meets the given condition.
+     * The condition is decided from the live counts, in constant time.
+     * @param viability The condition to test.
+     * @return true if the population meets the condition.
+     */
+    public boolean isViable(Viability viability)
+    {
+        return viability.test(this::getCount);
+    }
+
     /**
      * Get the list of animals.
+     * @return A read-only view of the animals in the field.
      */
     public List<Organism> getOrganisms()
     {
-        return organisms;
+        return organismList;
     }
 
     /**
@@ -194,7 +838,7 @@ public class Field
     {
         return depth;
     }
-    
+
     /**
      * Return the width of the field.
      * @return The width of the field.
@@ -203,4 +847,176 @@ public class Field
     {
         return width;
     }
+
+    /**
+     * Return the parameters of the species living in the field, which
+     * the organisms follow when they act.
+     * @return The parameters.
+     */
+    public Parameters getParameters()
+    {
+        return parameters;
+    }
+
+    /**
+     * Set the parameters of the species living in the field.
+     * @param parameters The parameters.
+     */
+    public void setParameters(Parameters parameters)
+    {
+        this.parameters = Objects.requireNonNull(parameters);
+    }
+
+    /**
+     * Return the number of chunks needed to cover a length of cells.
+     * @param cells The length, in cells.
+     * @return The number of chunks.
+     */
+    private static int chunksAcross(int cells)
+    {
+        return (cells + Chunk.MASK) >>> Chunk.SHIFT;
+    }
+
+    /**
+     * A square block of cells, allocated once an organism is placed in it.
+     * Its cells are stored row by row. The occupancy bitsets hold one word
+     * for each row, since a chunk is as wide as a word has bits.
+     */
+    private static final class Chunk
+    {
+        // The number of bits of a cell's row or column within its chunk.
+        static final int SHIFT = 6;
+        // The width and depth of a chunk.
+        static final int SIZE = 1 << SHIFT;
+        // The mask giving a row or column within its chunk.
+        static final int MASK = SIZE - 1;
+
+        // The index of the chunk, row by row.
+        final int index;
+        // The organisms, indexed by cell.
+        final Organism[] cells = new Organism[SIZE * SIZE];
+        // The registry slot holding each cell's occupant, or -1 if it is empty.
+        final int[] slots = new int[SIZE * SIZE];
+        // A bit for each cell holding a live organism: bit col of word row.
+        final long[] occupied = new long[SIZE];
+        // The same for the live organisms of each species, indexed by ordinal.
+        final long[][] occupiedBy = new long[SPECIES_COUNT][SIZE];
+        // The canonical location of each cell, shared with the other
+        // fields of the layout, and created when first needed.
+        final Location[] locations;
+        // The number of cells given registry slots since the last clear.
+        int occupants;
+
+        /**
+         * Create an empty chunk.
+         * @param index The index of the chunk.
+         * @param locations Its table of canonical locations.
+         */
+        Chunk(int index, Location[] locations)
+        {
+            this.index = index;
+            this.locations = locations;
+            Arrays.fill(slots, -1);
+        }
+
+        /**
+         * Return the index within its chunk of a cell.
+         * @param row The row of the cell in the field.
+         * @param col The column of the cell in the field.
+         * @return The index of the cell in the chunk's arrays.
+         */
+        static int cellOf(int row, int col)
+        {
+            return (row & MASK) << SHIFT | (col & MASK);
+        }
+
+        /**
+         * Set the occupancy bits of a cell that now holds a live organism.
+         * @param row The row of the cell in the field.
+         * @param col The column of the cell in the field.
+         * @param ordinal The ordinal of the organism's species.
+         */
+        void mark(int row, int col, int ordinal)
+        {
+            long bit = 1L << col;
+            occupied[row & MASK] |= bit;
+            occupiedBy[ordinal][row & MASK] |= bit;
+        }
+
+        /**
+         * Clear the occupancy bits of a cell that no longer holds a live
+         * organism of the given species.
+         * @param row The row of the cell in the field.
+         * @param col The column of the cell in the field.
+         * @param ordinal The ordinal of the species.
+         */
+        void unmark(int row, int col, int ordinal)
+        {
+            long bits = ~(1L << col);
+            occupied[row & MASK] &= bits;
+            occupiedBy[ordinal][row & MASK] &= bits;
+        }
+
+        /**
+         * Clear every occupancy bit of the chunk.
+         */
+        void clearBits()
+        {
+            Arrays.fill(occupied, 0);
+            for(long[] bits : occupiedBy) {
+                Arrays.fill(bits, 0);
+            }
+        }
+    }
+
+    /**
+     * The canonical locations of the cells, shared by the fields built
+     * from one another. The table of a chunk is kept while at least one
+     * of the fields has that chunk allocated.
+     */
+    private static final class Layout
+    {
+        // The table of each chunk, or null if no field uses it.
+        private final Location[][] locations;
+        // The number of fields that have each chunk allocated.
+        private final int[] users;
+
+        /**
+         * Create an empty layout.
+         * @param chunks The number of chunks in a field.
+         */
+        Layout(long chunks)
+        {
+            if(chunks > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Too many chunks: " + chunks);
+            }
+            locations = new Location[(int) chunks][];
+            users = new int[(int) chunks];
+        }
+
+        /**
+         * Return the table of a chunk that a field has allocated.
+         * @param index The index of the chunk.
+         * @return The table.
+         */
+        synchronized Location[] acquire(int index)
+        {
+            if(users[index]++ == 0) {
+                locations[index] = new Location[Chunk.SIZE * Chunk.SIZE];
+            }
+            return locations[index];
+        }
+
+        /**
+         * Record that a field has released a chunk, dropping its table
+         * if no field uses it any more.
+         * @param index The index of the chunk.
+         */
+        synchronized void release(int index)
+        {
+            if(--users[index] == 0) {
+                locations[index] = null;
+            }
+        }
+    }
 }
@@ -0,0 +1,204 @@
+import java.util.Arrays;
+
+/**
+ * An immutable copy of the state of a field at one step, holding just
+ * what is needed to display it: the species in each cell and the number
+ * of live organisms of each species. A snapshot holds a byte for every
+ * cell, so taking one costs time and memory in proportion to the area
+ * of the field, although only the occupied cells are visited to fill
+ * it in, and a field of more than MAX_AREA cells cannot be copied. It can be handed to another thread, such as a renderer, while
+ * the simulation carries on.
+ *
+ * @author David J. Barnes and Michael Kölling
+ * @version 7.1
+ */
+public final class FieldSnapshot
+{
+    private static final Species[] SPECIES = Species.values();
+    // The largest number of cells a snapshot can hold.
+    static final int MAX_AREA = Integer.MAX_VALUE - 8;
+
+    // The step the snapshot was taken at.
+    private final int step;
+    // The dimensions of the field.
+    private final int depth, width;
+    // The species in each cell, row-major, as its ordinal plus one,
+    // or zero if the cell is free.
+    private final byte[] cells;
+    // The number of live organisms of each species, indexed by ordinal.
+    private final int[] counts;
+
+    /**
+     * Create a snapshot from its parts.
+     * @param step The step the snapshot was taken at.
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     * @param cells The species in each cell.
+     * @param counts The number of live organisms of each species.
+     */
+    private FieldSnapshot(int step, int depth, int width, byte[] cells, int[] counts)
+    {
+        this.step = step;
+        this.depth = depth;
+        this.width = width;
+        this.cells = cells;
+        this.counts = counts;
+    }
+
+    /**
+     * Take a snapshot of a field.
+     * @param step The current step of the simulation.
+     * @param field The field to copy.
+     * @return The snapshot.
+     */
+    public static FieldSnapshot of(int step, Field field)
+    {
+        return of(step, field, null);
+    }
+
+    /**
+     * Take a snapshot of a field, reusing the storage of an earlier
+     * snapshot that nobody else has seen.
+     * @param step The current step of the simulation.
+     * @param field The field to copy.
+     * @param unused A snapshot that has never been handed out and will
+     *               not be used again, or null.
+     * @return The snapshot.
+     */
+    static FieldSnapshot of(int step, Field field, FieldSnapshot unused)
+    {
+        int depth = field.getDepth();
+        int width = field.getWidth();
+        byte[] cells;
+        int[] counts;
+        if(unused != null && unused.depth == depth && unused.width == width) {
+            cells = unused.cells;
+            counts = unused.counts;
+            Arrays.fill(cells, (byte) 0);
+        }
+        else {
+            cells = new byte[area(depth, width)];
+            counts = new int[SPECIES.length];
+        }
+        // Only the occupied cells need to be visited. Dead organisms
+        // leave their cells free.
+        for(Organism anOrganism : field.getOrganisms()) {
+            if(anOrganism.isAlive()) {
+                Location location = anOrganism.getLocation();
+                cells[location.row() * width + location.col()] =
+                    (byte) (anOrganism.getSpecies().ordinal() + 1);
+            }
+        }
+        for(Species species : SPECIES) {
+            counts[species.ordinal()] = field.getCount(species);
+        }
+        return new FieldSnapshot(step, depth, width, cells, counts);
+    }
+
+    /**
+     * Return the number of cells in a field, checking that there are
+     * few enough for a snapshot of it to be taken.
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     * @return The number of cells.
+     * @throws IllegalArgumentException If either dimension is not
+     *         positive, or the field has more than MAX_AREA cells.
+     */
+    static int area(int depth, int width)
+    {
+        long area = (long) depth * width;
+        if(depth <= 0 || width <= 0 || area > MAX_AREA) {
+            throw new IllegalArgumentException("Cannot take snapshots of a " + depth + "x" + width
+                                               + " field: at most " + MAX_AREA + " cells are allowed");
+        }
+        return (int) area;
+    }
+
+    /**
+     * Make a snapshot from a copy of the given cells and counts.
+     * @param step The step the snapshot is of.
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     * @param cells The species in each cell, row-major, as its ordinal
+     *              plus one, or zero if the cell is free.
+     * @param counts The number of live organisms of each species,
+     *               indexed by ordinal.
+     * @return The snapshot.
+     */
+    static FieldSnapshot of(int step, int depth, int width, byte[] cells, int[] counts)
+    {
+        return new FieldSnapshot(step, depth, width, cells.clone(), counts.clone());
+    }
+
+    /**
+     * @return The step the snapshot was taken at.
+     */
+    public int getStep()
+    {
+        return step;
+    }
+
+    /**
+     * @return The depth of the field.
+     */
+    public int getDepth()
+    {
+        return depth;
+    }
+
+    /**
+     * @return The width of the field.
+     */
+    public int getWidth()
+    {
+        return width;
+    }
+
+    /**
+     * Return the species of the live organism at the given position.
+     * @param row The row of the position.
+     * @param col The column of the position.
+     * @return The species, or null if the position was free.
+     */
+    public Species getSpeciesAt(int row, int col)
+    {
+        int id = cells[row * width + col];
+        return id == 0 ? null : SPECIES[id - 1];
+    }
+
+    /**
+     * Return the species in a cell as an id: the species' ordinal plus
+     * one, or zero if the cell was free.
+     * @param cell The row-major index of the cell.
+     * @return The id of the cell's species.
+     */
+    int getIdAt(int cell)
+    {
+        return cells[cell];
+    }
+
+    /**
+     * Find the first cell, at or after the given one, whose species
+     * differs from that in another snapshot of the same field.
+     * Runs of equal cells are skipped over quickly, so finding all the
+     * differences costs little more than their number.
+     * @param other A snapshot of a field with the same dimensions.
+     * @param from The index of the cell to start from.
+     * @return The index of the differing cell, or -1 if there is none.
+     */
+    int nextDifference(FieldSnapshot other, int from)
+    {
+        int offset = Arrays.mismatch(cells, from, cells.length, other.cells, from, cells.length);
+        return offset < 0 ? -1 : from + offset;
+    }
+
+    /**
+     * Return the number of live organisms of a species.
+     * @param species The species to count.
+     * @return The number of live organisms of the species.
+     */
+    public int getCount(Species species)
+    {
+        return counts[species.ordinal()];
+    }
+}
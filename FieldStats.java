@@ -1,30 +1,32 @@
-import java.util.HashMap;
+import java.util.EnumMap;
 import java.util.Map;
+import java.util.function.ToIntFunction;
 
 /**
  * This class collects and provides some statistical data on the state 
- * of a field. It is flexible: it will create and maintain a counter 
- * for any class of object that is found within the field.
+ * of a field. It keeps a counter for each species, filled from the
+ * live counts that the field maintains, so producing the statistics
+ * does not involve examining the cells of the field.
  * 
  * @author David J. Barnes and Michael Kölling
- * @version 7.0
+ * @version 7.1
  */
 public class FieldStats
 {
-    // Counters for each type of entity (fox, rabbit, etc.) in the simulation.
-    private final Map<Class<?>, Counter> counters;
-    // Whether the counters are currently up to date.
-    private boolean countsValid;
+    // Counters for each species (wolf, hare, etc.) in the simulation.
+    private final Map<Species, Counter> counters;
 
     /**
      * Construct a FieldStats object.
      */
     public FieldStats()
     {
-        // Set up a collection for counters for each type of animal that
-        // we might find
-        counters = new HashMap<>();
-        countsValid = true;
+        // Set up a counter for each species, in declaration order.
+        counters = new EnumMap<>(Species.class);
+        for(Species species : Species.values()) {
+            String name = species.name();
+            counters.put(species, new Counter(name.charAt(0) + name.substring(1).toLowerCase()));
+        }
     }
 
     /**
@@ -32,56 +34,65 @@ public class FieldStats
      * @return A string describing what is in the field.
      */
     public String getPopulationDetails(Field field)
+    {
+        return getPopulationDetails(field::getCount);
+    }
+
+    /**
+     * Get details of a population, such as that of a snapshot.
+     * @param counts The number of live organisms of each species.
+     * @return A string describing the population.
+     */
+    public String getPopulationDetails(ToIntFunction<Species> counts)
     {
         StringBuilder details = new StringBuilder();
-        if(!countsValid) {
-            generateCounts(field);
-        }
-        for(Class<?> key : counters.keySet()) {
-            Counter info = counters.get(key);
-            details.append(info.getName())
-                   .append(": ")
-                   .append(info.getCount())
-                   .append(' ');
+        generateCounts(counts);
+        for(Counter info : counters.values()) {
+            if(info.getCount() > 0) {
+                details.append(info.getName())
+                       .append(": ")
+                       .append(info.getCount())
+                       .append(' ');
+            }
         }
         return details.toString();
     }
     
     /**
-     * Invalidate the current set of statistics; reset all 
-     * counts to zero.
+     * Reset all counts to zero.
      */
     public void reset()
     {
-        countsValid = false;
-        for(Class<?> key : counters.keySet()) {
-            Counter count = counters.get(key);
+        for(Counter count : counters.values()) {
             count.reset();
         }
     }
 
     /**
-     * Increment the count for one class of animal.
-     * @param animalClass The class of animal to increment.
+     * Increment the count for one class of organism.
+     * @param animalClass The class of organism to increment.
+     * @deprecated The counts are copied from the live counts of the
+     * field whenever details are requested, which replaces any count
+     * made this way. Use Field.getCount instead.
      */
+    @Deprecated
     public void incrementCount(Class<?> animalClass)
     {
-        Counter count = counters.get(animalClass);
-        if(count == null) {
-            // We do not have a counter for this species yet.
-            // Create one.
-            count = new Counter(animalClass.getName());
-            counters.put(animalClass, count);
+        for(Counter count : counters.values()) {
+            if(count.getName().equals(animalClass.getSimpleName())) {
+                count.setCount(count.getCount() + 1);
+            }
         }
-        count.increment();
     }
 
     /**
-     * Indicate that an animal count has been completed.
+     * Indicate that an organism count has been completed.
+     * @deprecated The live counts are always complete, so there is
+     * nothing to indicate.
      */
+    @Deprecated
     public void countFinished()
     {
-        countsValid = true;
     }
 
     /**
@@ -95,23 +106,15 @@ public class FieldStats
     }
     
     /**
-     * Generate counts of the number of foxes and rabbits.
-     * These are not kept up to date as foxes and rabbits
-     * are placed in the field, but only when a request
-     * is made for the information.
-     * @param field The field to generate the stats for.
+     * Copy the live counts of each species.
+     * A field keeps them up to date as organisms are placed and die,
+     * so this takes the same time whatever the size of the field.
+     * @param counts The number of live organisms of each species.
      */
-    private void generateCounts(Field field)
+    private void generateCounts(ToIntFunction<Species> counts)
     {
-        reset();
-        for(int row = 0; row < field.getDepth(); row++) {
-            for(int col = 0; col < field.getWidth(); col++) {
-                Organism organism = field.getOrganismAt(new Location(row, col));
-                if(organism != null) {
-                    incrementCount(organism.getClass());
-                }
-            }
+        for(Map.Entry<Species, Counter> entry : counters.entrySet()) {
+            entry.getValue().setCount(counts.applyAsInt(entry.getKey()));
         }
-        countsValid = true;
     }
 }
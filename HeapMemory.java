@@ -0,0 +1,86 @@
+import java.util.Arrays;
+
+/**
+ * The memory of ArrayEngine on the heap, in ordinary Java arrays.
+ * Each array holds fewer than 2^31 elements.
+ *
+ * @author David J. Barnes and Michael Kölling
+ * @version 7.1
+ */
+final class HeapMemory implements EngineMemory
+{
+    // The largest length the JVM reliably allows for an array.
+    private static final int MAX_LENGTH = Integer.MAX_VALUE - 8;
+
+    @Override
+    public Ints ints(long length)
+    {
+        return new HeapInts(new int[checkLength(length)]);
+    }
+
+    @Override
+    public void close()
+    {
+        // The arrays are reclaimed by the garbage collector.
+    }
+
+    /**
+     * Check that an array of the given length fits on the heap.
+     * @param length The length.
+     * @return The length, as an int.
+     */
+    private static int checkLength(long length)
+    {
+        if(length < 0 || length > MAX_LENGTH) {
+            throw new IllegalArgumentException("Cannot hold " + length
+                                               + " elements on the heap");
+        }
+        return (int) length;
+    }
+
+    /**
+     * An array of ints on the heap.
+     */
+    private static final class HeapInts implements EngineMemory.Ints
+    {
+        private final int[] values;
+
+        /**
+         * @param values The elements.
+         */
+        private HeapInts(int[] values)
+        {
+            this.values = values;
+        }
+
+        @Override
+        public long length()
+        {
+            return values.length;
+        }
+
+        @Override
+        public int get(long index)
+        {
+            return values[(int) index];
+        }
+
+        @Override
+        public void set(long index, int value)
+        {
+            values[(int) index] = value;
+        }
+
+        @Override
+        public void fill(long from, long to, int value)
+        {
+            Arrays.fill(values, (int) from, (int) to, value);
+        }
+
+        @Override
+        public EngineMemory.Ints resize(long length)
+        {
+            return new HeapInts(Arrays.copyOf(values, checkLength(length)));
+        }
+    }
+}
@@ -0,0 +1,126 @@
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+/**
+ * A reusable cursor over the locations adjacent to a cell.
+ * A field fills the cursor with up to eight neighbouring cells, as a
+ * mask over the 3x3 block centred on the cell; the cursor then yields
+ * them one at a time in random order. Each cell is drawn when it is
+ * asked for, by picking one of the bits left in the mask, so a caller
+ * that only needs the first few cells pays for no more draws than that.
+ * Filling and stepping through the cursor allocate nothing, and
+ * locations come from the field's canonical table, so an organism can
+ * keep one cursor and reuse it on every step.
+ *
+ * @author David J. Barnes and Michael Kölling
+ * @version 7.1
+ */
+public class Neighbours
+{
+    // The bit of a block mask standing for the centre cell, which is
+    // never a neighbour of itself.
+    static final int CENTRE = 1 << 4;
+
+    // The cells still to be yielded, as a mask over the 3x3 block:
+    // bit (dr + 1) * 3 + (dc + 1) stands for the cell at offset (dr, dc).
+    private int mask;
+    // The row and column of the centre cell.
+    private int centreRow, centreCol;
+    // The row and column of the cell most recently yielded.
+    private int row, col;
+    // The field the cells belong to.
+    private Field field;
+    // The generator from which the order of the cells is drawn.
+    private Random rand;
+
+    /**
+     * Create an empty cursor.
+     */
+    public Neighbours()
+    {
+    }
+
+    /**
+     * Fill the cursor with cells of the given field, discarding its
+     * previous contents.
+     * @param field The field the cells belong to.
+     * @param row The row of the centre cell.
+     * @param col The column of the centre cell.
+     * @param mask The neighbouring cells, as a mask over the 3x3 block.
+     * @param rand The generator from which to draw their order.
+     */
+    void fill(Field field, int row, int col, int mask, Random rand)
+    {
+        this.field = field;
+        centreRow = row;
+        centreCol = col;
+        this.mask = mask & ~CENTRE;
+        this.rand = rand;
+    }
+
+    /**
+     * @return true if there are cells still to be yielded.
+     */
+    public boolean hasNext()
+    {
+        return mask != 0;
+    }
+
+    /**
+     * @return The number of cells still to be yielded.
+     */
+    public int remaining()
+    {
+        return Integer.bitCount(mask);
+    }
+
+    /**
+     * Move to the next cell and return its location.
+     * @return The location of the next cell.
+     */
+    public Location next()
+    {
+        advance();
+        return location();
+    }
+
+    /**
+     * Move to the next cell and return whatever occupies it.
+     * Use location() to find out where the cell is.
+     * @return The organism in the next cell, or null if it is empty.
+     */
+    public Organism nextOrganism()
+    {
+        advance();
+        return field.getOrganismAt(row, col);
+    }
+
+    /**
+     * @return The location of the cell most recently yielded.
+     */
+    public Location location()
+    {
+        return field.getLocation(row, col);
+    }
+
+    /**
+     * Draw one of the remaining cells and remove it from the mask.
+     * All remaining cells are equally likely, so the cells come out
+     * in a uniformly random order.
+     */
+    private void advance()
+    {
+        int count = Integer.bitCount(mask);
+        if(count == 0) {
+            throw new NoSuchElementException();
+        }
+        int bits = mask;
+        for(int skip = count == 1 ? 0 : rand.nextInt(count); skip > 0; skip--) {
+            bits &= bits - 1;
+        }
+        int bit = Integer.numberOfTrailingZeros(bits);
+        mask &= ~(1 << bit);
+        row = centreRow + bit / 3 - 1;
+        col = centreCol + bit % 3 - 1;
+    }
+}
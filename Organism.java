@@ -1,36 +1,204 @@
+import java.util.Random;
+
 /**
  * Common elements of all Animals and Plants in the forest.
  * Prey - {Hare, Deer}
  * Predator - {Wolf, Owl, Bear}
  * Plant - {Berries and Acorn}
  *
+ * Every organism acts by the same rules, those of its species' kind,
+ * with the numbers taken from the parameters of the field it lives in.
+ * The subclasses only set up a new organism of their species, so the
+ * simulation's loop over the organisms always calls this one act
+ * method, whatever the mix of species.
+ *
  * @author David J. Barnes and Michael Kölling
- * @version 7.0
+ * @version 7.1
  */
 public abstract class Organism
 {
+    // Reusable cursors for the neighbour queries made while acting.
+    // Each thread has its own pair, so organisms can act in parallel.
+    private static final ThreadLocal<Neighbours> freeCursor =
+        ThreadLocal.withInitial(Neighbours::new);
+    private static final ThreadLocal<Neighbours> adjacentCursor =
+        ThreadLocal.withInitial(Neighbours::new);
+    // A shared random number generator to control breeding.
+    private static final Random rand = Randomizer.getRandom();
+
+    // The organism's species.
+    private final Species species;
     // Whether the organism is alive or not.
     private boolean alive;
     // The organissm's position.
     private Location location;
+    // The field that last counted the organism as alive, if any.
+    private Field field;
+    // The organism's age, in steps.
+    private int age;
+    // The organism's food level, which is increased by eating. Only
+    // predators go hungry.
+    private int foodLevel;
 
     /**
      * Constructor for objects of class Animal.
+     * @param species The animal's species.
      * @param location The animal's location.
      */
-    public Organism(Location location)
+    public Organism(Species species, Location location)
     {
+        this.species = species;
         this.alive = true;
         this.location = location;
     }
     
     /**
-     * Act.
+     * Create an organism of the given species.
+     * @param species The species.
+     * @param randomAge If true, the organism has a random age and food level.
+     * @param location The location of the organism.
+     * @param parameters The parameters of the species.
+     * @return The new organism.
+     */
+    static Organism create(Species species, boolean randomAge, Location location,
+                           Parameters parameters)
+    {
+        return switch(species) {
+            case WOLF -> new Wolf(randomAge, location, parameters);
+            case HARE -> new Hare(randomAge, location, parameters);
+            case DEER -> new Deer(randomAge, location, parameters);
+            case BEAR -> new Bear(randomAge, location, parameters);
+            case OWL -> new Owl(randomAge, location, parameters);
+            case BERRY -> new Berry(randomAge, location, parameters);
+            case ACORN -> new Acorn(randomAge, location, parameters);
+        };
+    }
+
+    /**
+     * This is what every organism does at each step: it ages, and may
+     * die of old age, of hunger if it is a predator, or by being eaten
+     * if it is a plant. If it survives, it breeds into the free adjacent
+     * locations, then a predator moves onto the first live prey found
+     * next to it and any other organism moves into a free location.
+     * It dies if it cannot move.
      * @param currentField The current state of the field.
      * @param nextFieldState The new state being built.
      */
-    abstract public void act(Field currentField, Field nextFieldState);
-    
+    public final void act(Field currentField, Field nextFieldState)
+    {
+        Parameters parameters = currentField.getParameters();
+        Species.Kind kind = species.kind();
+        age++;
+        if(age > parameters.maxAge(species)) {
+            setDead();
+        }
+        if(kind == Species.Kind.PREDATOR) {
+            foodLevel--;
+            if(foodLevel <= 0) {
+                setDead();
+            }
+        }
+        if(!alive) {
+            return;
+        }
+        if(kind == Species.Kind.PLANT && currentField.isAdjacent(location, species.eaterMask())) {
+            setDead();
+            return;
+        }
+        Neighbours freeLocations = nextFieldState.getFreeAdjacentLocations(location, free());
+        if(freeLocations.hasNext()) {
+            giveBirth(nextFieldState, freeLocations);
+        }
+        Location nextLocation = null;
+        if(kind == Species.Kind.PREDATOR) {
+            // Move towards a source of food if found.
+            nextLocation = findFood(currentField);
+        }
+        if(nextLocation == null && freeLocations.hasNext()) {
+            nextLocation = freeLocations.next();
+        }
+        if(nextLocation != null) {
+            setLocation(nextLocation);
+            nextFieldState.placeOrganism(this, nextLocation);
+        }
+        else {
+            // Overcrowding.
+            setDead();
+        }
+    }
+
+    /**
+     * Give birth to young in the free adjacent locations. An animal
+     * may have a litter once it is old enough; a plant always spreads
+     * one seedling of random age.
+     * @param nextFieldState The new state being built.
+     * @param freeLocations The locations that are free in the new state.
+     */
+    private void giveBirth(Field nextFieldState, Neighbours freeLocations)
+    {
+        Parameters parameters = nextFieldState.getParameters();
+        boolean plant = species.kind() == Species.Kind.PLANT;
+        int births = plant ? 1 : breed(parameters);
+        for(int b = 0; b < births && freeLocations.hasNext(); b++) {
+            Location loc = freeLocations.next();
+            Organism young = create(species, plant, loc, parameters);
+            nextFieldState.placeOrganism(young, loc);
+        }
+    }
+
+    /**
+     * Generate a number representing the number of births,
+     * if the animal can breed.
+     * @param parameters The parameters of the species.
+     * @return The number of births (may be zero).
+     */
+    private int breed(Parameters parameters)
+    {
+        if(age >= parameters.breedingAge(species)
+           && rand.nextDouble() <= parameters.breedingProbability(species)) {
+            return rand.nextInt(parameters.maxLitterSize(species)) + 1;
+        }
+        return 0;
+    }
+
+    /**
+     * Look for prey adjacent to the current location, in random order.
+     * Only the first live prey found is eaten.
+     * @param field The field currently occupied.
+     * @return Where food was found, or null if it wasn't.
+     */
+    private Location findFood(Field field)
+    {
+        Neighbours prey = field.getAdjacentOrganisms(location, species.preyMask(), adjacent());
+        while(prey.hasNext()) {
+            Organism organism = prey.nextOrganism();
+            if(organism.isAlive()) {
+                organism.setDead();
+                foodLevel = field.getParameters().foodValue(species);
+                return prey.location();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Return this thread's cursor for free adjacent locations.
+     * @return A cursor to pass to Field.getFreeAdjacentLocations.
+     */
+    private static Neighbours free()
+    {
+        return freeCursor.get();
+    }
+
+    /**
+     * Return this thread's cursor for adjacent locations.
+     * @return A cursor to pass to Field.getAdjacentOrganisms.
+     */
+    private static Neighbours adjacent()
+    {
+        return adjacentCursor.get();
+    }
+
     /**
      * Check whether the animal/plant is alive or not.
      * @return true if the animal/plant is still alive.
@@ -40,14 +208,79 @@ public abstract class Organism
         return alive;
     }
 
+    /**
+     * Return the organism's species.
+     * @return The organism's species.
+     */
+    public Species getSpecies()
+    {
+        return species;
+    }
+
+    /**
+     * Return the organism's age.
+     * @return The age, in steps.
+     */
+    final int getAge()
+    {
+        return age;
+    }
+
+    /**
+     * Return the organism's food level.
+     * @return The food level, or zero for an organism that has none.
+     */
+    final int getFoodLevel()
+    {
+        return foodLevel;
+    }
+
+    /**
+     * Set the organism's age and food level, as when it is created or
+     * when a simulation resumes from a checkpoint.
+     * @param age The age, in steps.
+     * @param foodLevel The food level; zero for organisms that have none.
+     */
+    final void setState(int age, int foodLevel)
+    {
+        this.age = age;
+        this.foodLevel = foodLevel;
+    }
+
     /**
      * Indicate that the organism is no longer alive.
+     * The field that counts it among the living is told.
      */
     protected void setDead()
     {
-        alive = false;
+        if(alive) {
+            alive = false;
+            if(field != null) {
+                field.organismDied(this);
+                field = null;
+            }
+        }
         location = null;
     }
+
+    /**
+     * Return the field that counts the organism as alive.
+     * @return The field the organism was last placed in,
+     *         or null if it has died or been displaced since.
+     */
+    Field getField()
+    {
+        return field;
+    }
+
+    /**
+     * Record the field that counts the organism as alive.
+     * @param field The field the organism has been placed in, or null.
+     */
+    void setField(Field field)
+    {
+        this.field = field;
+    }
     
     /**
      * Return the animal's location.
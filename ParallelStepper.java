@@ -0,0 +1,195 @@
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Run a simulation step on several threads by splitting the field into
+ * square tiles and letting the organisms of different tiles act at the
+ * same time on a fork-join pool.
+ *
+ * An organism only reads and writes cells within a short distance of
+ * its own: it moves and gives birth into adjacent cells, and kills prey
+ * in adjacent cells that may have moved one cell further already. The
+ * tiles are therefore processed in four phases, like the squares of two
+ * interleaved checkerboards. In each phase, the tiles that act at the
+ * same time are a whole tile apart, which is further than any organism
+ * reaches, so their moves, births and kills never touch the same cell.
+ * Each phase finishes before the next one starts, so effects that cross
+ * a tile boundary are seen in full by the tiles of later phases.
+ * Neither field keeps its live counts up to date during the step, since
+ * organisms die on several threads at once; both recount at the end.
+ *
+ * Each tile draws its random numbers from its own RandomStream, seeded
+ * from the step's seed and the tile's position. The step's seed is
+ * taken from the calling thread's generator. Since no tile depends on
+ * which thread runs it, or when, a run is reproduced exactly from the
+ * same seed, whatever the number of threads.
+ *
+ * @author David J. Barnes and Michael Kölling
+ * @version 7.1
+ */
+public class ParallelStepper
+{
+    // The default width and depth of a tile, in cells.
+    public static final int DEFAULT_TILE_SIZE = 32;
+    // The smallest tile size that keeps concurrent tiles out of each
+    // other's reach.
+    private static final int MIN_TILE_SIZE = 4;
+
+    // The pool on which the tiles are processed.
+    private final ForkJoinPool pool;
+    // The width and depth of a tile, in cells.
+    private final int tileSize;
+    // The stream of each worker thread, reseeded for every tile.
+    private final ThreadLocal<RandomStream> tileStream =
+        ThreadLocal.withInitial(() -> new RandomStream(0));
+
+    /**
+     * Create a stepper using the given number of threads and the
+     * default tile size.
+     * @param parallelism The number of threads to use.
+     */
+    public ParallelStepper(int parallelism)
+    {
+        this(parallelism, DEFAULT_TILE_SIZE);
+    }
+
+    /**
+     * Create a stepper using the given number of threads and tile size.
+     * @param parallelism The number of threads to use.
+     * @param tileSize The width and depth of a tile, in cells.
+     *                 Must be at least 4.
+     */
+    public ParallelStepper(int parallelism, int tileSize)
+    {
+        if(tileSize < MIN_TILE_SIZE) {
+            throw new IllegalArgumentException("Tiles must be at least " + MIN_TILE_SIZE
+                                               + " cells wide: " + tileSize);
+        }
+        this.pool = new ForkJoinPool(parallelism);
+        this.tileSize = tileSize;
+    }
+
+    /**
+     * Let every organism of the current field act once, building the
+     * next state in the given, empty field.
+     * @param currentField The current state of the field.
+     * @param nextFieldState The new state being built.
+     */
+    public void step(Field currentField, Field nextFieldState)
+    {
+        int tileRows = (currentField.getDepth() + tileSize - 1) / tileSize;
+        int tileCols = (currentField.getWidth() + tileSize - 1) / tileSize;
+        long stepSeed = Randomizer.getRandom().nextLong();
+        currentField.suspendCounting();
+        nextFieldState.beginConcurrentPlacement();
+        try {
+            for(int phase = 0; phase < 4; phase++) {
+                int firstRow = phase / 2;
+                int firstCol = phase % 2;
+                int rows = (tileRows - firstRow + 1) / 2;
+                int cols = (tileCols - firstCol + 1) / 2;
+                if(rows > 0 && cols > 0) {
+                    pool.invoke(new PhaseTask(currentField, nextFieldState, stepSeed,
+                                              firstRow, firstCol, cols, 0, rows * cols));
+                }
+            }
+        }
+        finally {
+            nextFieldState.endConcurrentPlacement();
+            currentField.resumeCounting();
+        }
+    }
+
+    /**
+     * Release the threads of the pool.
+     */
+    public void shutdown()
+    {
+        pool.shutdown();
+    }
+
+    /**
+     * Let the organisms of one tile act, in row-major order. A tile
+     * in an empty part of the field is skipped without visiting its cells.
+     * @param currentField The current state of the field.
+     * @param nextFieldState The new state being built.
+     * @param stepSeed The seed of this step's random streams.
+     * @param tileRow The row of the tile.
+     * @param tileCol The column of the tile.
+     */
+    private void actTile(Field currentField, Field nextFieldState, long stepSeed,
+                         int tileRow, int tileCol)
+    {
+        int lastRow = Math.min((tileRow + 1) * tileSize, currentField.getDepth());
+        int lastCol = Math.min((tileCol + 1) * tileSize, currentField.getWidth());
+        if(currentField.isEmpty(tileRow * tileSize, tileCol * tileSize, lastRow, lastCol)) {
+            // Nothing lives here, so there is nothing to act, and no
+            // random numbers would be drawn.
+            return;
+        }
+        RandomStream stream = tileStream.get();
+        stream.setSeed(RandomStream.derive(stepSeed, ((long) tileRow << 32) | tileCol));
+        RandomStream previous = Randomizer.useStream(stream);
+        try {
+            for(int row = tileRow * tileSize; row < lastRow; row++) {
+                for(int col = tileCol * tileSize; col < lastCol; col++) {
+                    Organism anOrganism = currentField.getOrganismAt(row, col);
+                    if(anOrganism != null) {
+                        anOrganism.act(currentField, nextFieldState);
+                    }
+                }
+            }
+        }
+        finally {
+            Randomizer.useStream(previous);
+        }
+    }
+
+    /**
+     * Process a range of the tiles belonging to one phase, splitting
+     * the range in half until a single tile remains.
+     */
+    private class PhaseTask extends RecursiveAction
+    {
+        private static final long serialVersionUID = 1L;
+
+        private final transient Field currentField, nextFieldState;
+        // The seed of this step's random streams.
+        private final long stepSeed;
+        // The row and column of the phase's first tile.
+        private final int firstRow, firstCol;
+        // The number of the phase's tiles in each row of tiles.
+        private final int cols;
+        // The range of the phase's tiles to process, in row-major order.
+        private final int from, to;
+
+        PhaseTask(Field currentField, Field nextFieldState, long stepSeed,
+                  int firstRow, int firstCol, int cols, int from, int to)
+        {
+            this.currentField = currentField;
+            this.nextFieldState = nextFieldState;
+            this.stepSeed = stepSeed;
+            this.firstRow = firstRow;
+            this.firstCol = firstCol;
+            this.cols = cols;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if(to - from == 1) {
+                actTile(currentField, nextFieldState, stepSeed,
+                        firstRow + 2 * (from / cols), firstCol + 2 * (from % cols));
+            }
+            else {
+                int middle = (from + to) >>> 1;
+                invokeAll(new PhaseTask(currentField, nextFieldState, stepSeed,
+                                        firstRow, firstCol, cols, from, middle),
+                          new PhaseTask(currentField, nextFieldState, stepSeed,
+                                        firstRow, firstCol, cols, middle, to));
+            }
+        }
+    }
+}
@@ -0,0 +1,224 @@
+import java.util.Arrays;
+
+/**
+ * The life-history parameters of every species in one simulation: how
+ * likely each is to be placed in a cell when the field is populated,
+ * and how it ages, breeds and feeds. The defaults are those declared in
+ * Species. A set of parameters is immutable; changing a value makes a
+ * new set, so several simulations with different parameters can run at
+ * the same time.
+ *
+ * For example, a simulation in which wolves live longer is set up with
+ * <pre>
+ *     simulator.setParameters(Parameters.DEFAULT.with(Species.WOLF, Parameters.Trait.MAX_AGE, 15));
+ * </pre>
+ *
+ * @author David J. Barnes and Michael Kölling
+ * @version 7.1
+ */
+public final class Parameters
+{
+    /**
+     * The parameters that can be set for each species.
+     */
+    public enum Trait
+    {
+        // The chance of a cell being populated with the species.
+        CREATION_PROBABILITY,
+        // The age at which it can start to breed. Plants spread at any age.
+        BREEDING_AGE,
+        // The age to which it can live.
+        MAX_AGE,
+        // The likelihood of it breeding. Plants always spread.
+        BREEDING_PROBABILITY,
+        // The maximum number of births. Plants spread one seedling.
+        MAX_LITTER_SIZE,
+        // The food level reached by eating. Only predators go hungry.
+        FOOD_VALUE;
+
+        /**
+         * @return Whether the trait takes whole numbers only.
+         */
+        public boolean isInteger()
+        {
+            return this != CREATION_PROBABILITY && this != BREEDING_PROBABILITY;
+        }
+
+        /**
+         * @return The name of the trait as used in files, such as "max_age".
+         */
+        public String label()
+        {
+            return name().toLowerCase();
+        }
+    }
+
+    private static final Species[] SPECIES = Species.values();
+
+    // The parameters declared in Species.
+    public static final Parameters DEFAULT = new Parameters();
+
+    // The value of each trait of each species, indexed by ordinals.
+    private final double[][] values;
+    // The integer traits, copied out for the organisms' act methods.
+    private final int[] breedingAge;
+    private final int[] maxAge;
+    private final int[] maxLitterSize;
+    private final int[] foodValue;
+
+    /**
+     * Create the default parameters.
+     */
+    private Parameters()
+    {
+        this(defaultValues());
+    }
+
+    /**
+     * Create parameters with the given values.
+     * @param values The value of each trait of each species.
+     */
+    private Parameters(double[][] values)
+    {
+        this.values = values;
+        breedingAge = integers(Trait.BREEDING_AGE);
+        maxAge = integers(Trait.MAX_AGE);
+        maxLitterSize = integers(Trait.MAX_LITTER_SIZE);
+        foodValue = integers(Trait.FOOD_VALUE);
+    }
+
+    /**
+     * Return a copy of these parameters with one value changed.
+     * @param species The species whose trait is changed.
+     * @param trait The trait to change.
+     * @param value The new value. Probabilities must lie between 0 and 1;
+     *              the other traits must be whole numbers, at least 1
+     *              except for the breeding age, which may be 0.
+     * @return The new parameters.
+     */
+    public Parameters with(Species species, Trait trait, double value)
+    {
+        if(trait.isInteger()) {
+            int least = trait == Trait.BREEDING_AGE ? 0 : 1;
+            if(value != Math.rint(value) || value < least || value > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException(trait.label() + " must be a whole number >= "
+                                                   + least + ": " + value);
+            }
+        }
+        else if(!(value >= 0 && value <= 1)) {
+            throw new IllegalArgumentException(trait.label() + " must lie between 0 and 1: "
+                                               + value);
+        }
+        double[][] changed = new double[SPECIES.length][];
+        for(int i = 0; i < SPECIES.length; i++) {
+            changed[i] = values[i].clone();
+        }
+        changed[species.ordinal()][trait.ordinal()] = value;
+        return new Parameters(changed);
+    }
+
+    /**
+     * Return the value of a trait of a species.
+     * @param species The species.
+     * @param trait The trait.
+     * @return The value.
+     */
+    public double get(Species species, Trait trait)
+    {
+        return values[species.ordinal()][trait.ordinal()];
+    }
+
+    /**
+     * @return The chance of a cell being populated with the species.
+     */
+    public double creationProbability(Species species)
+    {
+        return values[species.ordinal()][Trait.CREATION_PROBABILITY.ordinal()];
+    }
+
+    /**
+     * @return The age at which the species can start to breed.
+     */
+    public int breedingAge(Species species)
+    {
+        return breedingAge[species.ordinal()];
+    }
+
+    /**
+     * @return The age to which the species can live.
+     */
+    public int maxAge(Species species)
+    {
+        return maxAge[species.ordinal()];
+    }
+
+    /**
+     * @return The likelihood of the species breeding.
+     */
+    public double breedingProbability(Species species)
+    {
+        return values[species.ordinal()][Trait.BREEDING_PROBABILITY.ordinal()];
+    }
+
+    /**
+     * @return The maximum number of births.
+     */
+    public int maxLitterSize(Species species)
+    {
+        return maxLitterSize[species.ordinal()];
+    }
+
+    /**
+     * @return The food level reached by eating.
+     */
+    public int foodValue(Species species)
+    {
+        return foodValue[species.ordinal()];
+    }
+
+    @Override
+    public boolean equals(Object other)
+    {
+        return other instanceof Parameters parameters
+               && Arrays.deepEquals(values, parameters.values);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Arrays.deepHashCode(values);
+    }
+
+    /**
+     * Copy out the values of an integer trait.
+     * @param trait The trait.
+     * @return Its value for each species, indexed by ordinal.
+     */
+    private int[] integers(Trait trait)
+    {
+        int[] copy = new int[SPECIES.length];
+        for(int i = 0; i < SPECIES.length; i++) {
+            copy[i] = (int) values[i][trait.ordinal()];
+        }
+        return copy;
+    }
+
+    /**
+     * @return The values declared in Species.
+     */
+    private static double[][] defaultValues()
+    {
+        double[][] values = new double[SPECIES.length][];
+        for(Species species : SPECIES) {
+            values[species.ordinal()] = new double[] {
+                species.creationProbability(),
+                species.breedingAge(),
+                species.maxAge(),
+                species.breedingProbability(),
+                species.maxLitterSize(),
+                species.foodValue()
+            };
+        }
+        return values;
+    }
+}
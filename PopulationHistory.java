@@ -0,0 +1,253 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Record the number of live organisms of each species at every step,
+ * in a file. Recording a step only copies the counts into a buffer;
+ * full buffers are written out in batches on a thread of their own,
+ * so the simulation does not wait for the disk.
+ *
+ * A history is written in one of two formats:
+ * <ul>
+ * <li>CSV: a header line naming the columns ("step" and one column per
+ *     species), then one line per step;</li>
+ * <li>binary: the magic number 0x504F5048 ("POPH"), the format version
+ *     and the number of species, followed by one record per step
+ *     holding the step and the count of each species, all as
+ *     big-endian ints.</li>
+ * </ul>
+ * A history must be closed to write the last steps recorded.
+ *
+ * Steps are recorded in the order they are given. After a reset, or
+ * after a checkpoint is restored, the steps from the one gone back to
+ * are recorded again, so where a step appears more than once, its last
+ * record describes the run as it continued.
+ *
+ * @author David J. Barnes and Michael Kölling
+ * @version 7.1
+ */
+public class PopulationHistory implements AutoCloseable
+{
+    /**
+     * The formats in which a history can be written.
+     */
+    public enum Format
+    {
+        CSV, BINARY
+    }
+
+    // The magic number starting a binary history.
+    private static final int MAGIC = 0x504F5048;
+    // The version of the binary format.
+    private static final int VERSION = 1;
+    // The number of steps in each batch handed to the writer.
+    private static final int BATCH_STEPS = 1024;
+    // The number of full batches that may wait for the writer before
+    // recording blocks.
+    private static final int QUEUED_BATCHES = 8;
+    private static final Species[] SPECIES = Species.values();
+    // The number of ints recorded for each step.
+    private static final int RECORD_INTS = 1 + SPECIES.length;
+
+    private final Format format;
+    private final FileChannel channel;
+    // The batches waiting to be written. An empty batch marks the end.
+    private final BlockingQueue<int[]> queue = new ArrayBlockingQueue<>(QUEUED_BATCHES);
+    private final Thread writer;
+    // The batch being filled, and the number of ints in it.
+    private int[] batch = new int[BATCH_STEPS * RECORD_INTS];
+    private int batchSize;
+    // The first failure of the writer, reported when the history is closed.
+    private volatile IOException failure;
+    private boolean closed;
+
+    /**
+     * Create a history writing to the given file, replacing any
+     * existing contents.
+     * @param file The file to write to.
+     * @param format The format of the file.
+     * @throws IOException If the file cannot be opened.
+     */
+    public PopulationHistory(Path file, Format format) throws IOException
+    {
+        this.format = format;
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                   StandardOpenOption.TRUNCATE_EXISTING);
+        writer = new Thread(this::writeBatches, "Population history writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Record the live counts of a field at the given step.
+     * @param step The step of the simulation.
+     * @param field The field whose population is recorded.
+     */
+    public void record(int step, Field field)
+    {
+        if(closed) {
+            throw new IllegalStateException("The history has been closed");
+        }
+        batch[batchSize++] = step;
+        for(Species species : SPECIES) {
+            batch[batchSize++] = field.getCount(species);
+        }
+        if(batchSize == batch.length) {
+            handOver();
+        }
+    }
+
+    /**
+     * Write the steps still being buffered, wait for the writer to
+     * finish, and close the file.
+     * @throws IOException If writing the history failed.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        if(closed) {
+            return;
+        }
+        if(batchSize > 0) {
+            handOver();
+        }
+        closed = true;
+        try {
+            queue.put(new int[0]);
+            writer.join();
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            writer.interrupt();
+        }
+        finally {
+            channel.close();
+        }
+        if(failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Pass the current batch to the writer and start a new one.
+     * Blocks if the writer has fallen too far behind.
+     */
+    private void handOver()
+    {
+        int[] full = batchSize == batch.length ? batch : Arrays.copyOf(batch, batchSize);
+        try {
+            queue.put(full);
+        }
+        catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while recording the history", e);
+        }
+        batch = new int[BATCH_STEPS * RECORD_INTS];
+        batchSize = 0;
+        if(failure != null) {
+            throw new UncheckedIOException(failure);
+        }
+    }
+
+    /**
+     * Write batches as they arrive, until the end is marked.
+     * This is the body of the writer thread.
+     */
+    private void writeBatches()
+    {
+        try {
+            writeHeader();
+            int[] next;
+            while((next = queue.take()).length > 0) {
+                writeBatch(next);
+            }
+        }
+        catch(IOException e) {
+            failure = e;
+            // Keep taking batches, so that recording does not block.
+            drain();
+        }
+        catch(InterruptedException e) {
+            // The history is being abandoned.
+        }
+    }
+
+    /**
+     * Discard batches until the end is marked.
+     */
+    private void drain()
+    {
+        try {
+            while(queue.take().length > 0) {
+                // Nothing can be written any more.
+            }
+        }
+        catch(InterruptedException e) {
+            // The history is being abandoned.
+        }
+    }
+
+    /**
+     * Write the start of the file.
+     * @throws IOException If the file cannot be written.
+     */
+    private void writeHeader() throws IOException
+    {
+        if(format == Format.CSV) {
+            StringBuilder header = new StringBuilder("step");
+            for(Species species : SPECIES) {
+                header.append(',').append(species.name().toLowerCase());
+            }
+            header.append('\n');
+            writeFully(ByteBuffer.wrap(header.toString().getBytes(StandardCharsets.US_ASCII)));
+        }
+        else {
+            ByteBuffer header = ByteBuffer.allocate(3 * Integer.BYTES);
+            header.putInt(MAGIC).putInt(VERSION).putInt(SPECIES.length).flip();
+            writeFully(header);
+        }
+    }
+
+    /**
+     * Write the records of one batch.
+     * @param records The step and counts of each step, one after another.
+     * @throws IOException If the file cannot be written.
+     */
+    private void writeBatch(int[] records) throws IOException
+    {
+        if(format == Format.CSV) {
+            StringBuilder lines = new StringBuilder(records.length * 6);
+            for(int i = 0; i < records.length; i++) {
+                lines.append(records[i]).append((i + 1) % RECORD_INTS == 0 ? '\n' : ',');
+            }
+            writeFully(ByteBuffer.wrap(lines.toString().getBytes(StandardCharsets.US_ASCII)));
+        }
+        else {
+            ByteBuffer buffer = ByteBuffer.allocate(records.length * Integer.BYTES)
+                                          .order(ByteOrder.BIG_ENDIAN);
+            buffer.asIntBuffer().put(records);
+            writeFully(buffer);
+        }
+    }
+
+    /**
+     * Write the whole of a buffer to the file.
+     * @param buffer The bytes to write.
+     * @throws IOException If the file cannot be written.
+     */
+    private void writeFully(ByteBuffer buffer) throws IOException
+    {
+        while(buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+import java.util.Random;
+
+/**
+ * A fast, seedable random number generator whose state is a single
+ * long (the SplitMix64 algorithm). Unlike java.util.Random it is not
+ * safe to share between threads, but it needs no synchronization, and
+ * independent streams can be derived from a seed and a key - for
+ * example one per tile of the field - so that work split across
+ * threads still gives reproducible results.
+ *
+ * A stream does not give the same numbers as a java.util.Random with
+ * the same seed.
+ *
+ * @author David J. Barnes and Michael Kölling
+ * @version 7.1
+ */
+public class RandomStream extends Random
+{
+    private static final long serialVersionUID = 1L;
+
+    // The increment of the generator's state.
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    // The generator's state. It is set by the Random constructor,
+    // through setSeed, so it must not have an initializer.
+    private long state;
+
+    /**
+     * Create a stream with the given seed.
+     * @param seed The initial state of the stream.
+     */
+    public RandomStream(long seed)
+    {
+        super(seed);
+    }
+
+    /**
+     * Derive the seed of an independent stream from a seed and a key.
+     * Different keys give unrelated streams.
+     * @param seed The seed to derive from.
+     * @param key The key distinguishing the derived stream.
+     * @return The derived seed.
+     */
+    public static long derive(long seed, long key)
+    {
+        return mix(seed + mix(key + GOLDEN_GAMMA));
+    }
+
+    /**
+     * Restart the stream from the given state.
+     * @param seed The new state of the stream.
+     */
+    @Override
+    public void setSeed(long seed)
+    {
+        super.setSeed(seed);
+        state = seed;
+    }
+
+    /**
+     * Return the current state of the stream. A stream given this
+     * value with setSeed continues with exactly the same numbers.
+     * @return The current state.
+     */
+    public long getState()
+    {
+        return state;
+    }
+
+    @Override
+    public long nextLong()
+    {
+        state += GOLDEN_GAMMA;
+        return mix(state);
+    }
+
+    @Override
+    protected int next(int bits)
+    {
+        return (int) (nextLong() >>> (64 - bits));
+    }
+
+    /**
+     * Scramble a value with the SplitMix64 finalizer.
+     * @param z The value to scramble.
+     * @return The scrambled value.
+     */
+    private static long mix(long z)
+    {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -1,19 +1,32 @@
 import java.util.Random;
 
 /**
- * Provide control over the randomization of the simulation. By using the shared, fixed-seed 
- * randomizer, repeated runs will perform exactly the same (which helps with testing). Set 
+ * Provide control over the randomization of the simulation. By using the shared, fixed-seed
+ * randomizer, repeated runs will perform exactly the same (which helps with testing). Set
  * 'useShared' to false to get different random behaviour every time.
- * 
+ *
+ * The shared generator draws its numbers from a RandomStream. A thread can bind its own
+ * stream with useStream, for instance while it processes one tile of a parallel step;
+ * until it does, it uses the default stream seeded with SEED. This lets several threads
+ * use the shared generator at once and still reproduce their results exactly.
+ *
+ * The default stream is a RandomStream rather than a java.util.Random, so a run with a
+ * given seed no longer follows the trajectory it followed in version 7.0, although runs
+ * remain repeatable. A RandomStream's state can be read back, which a checkpoint needs.
+ *
  * @author David J. Barnes and Michael Kölling
- * @version 7.0
+ * @version 7.1
  */
 public class Randomizer
 {
     // The default seed for control of randomization.
     private static final int SEED = 1111;
+    // The stream used by threads that have not bound their own.
+    private static final RandomStream defaultStream = new RandomStream(SEED);
+    // The stream bound to each thread, if any.
+    private static final ThreadLocal<RandomStream> boundStream = new ThreadLocal<>();
     // A shared Random object, if required.
-    private static final Random rand = new Random(SEED);
+    private static final Random rand = new SharedRandom();
     // Determine whether a shared random generator is to be provided.
     private static final boolean useShared = true;
 
@@ -37,16 +50,125 @@ public class Randomizer
             return new Random();
         }
     }
-    
+
     /**
      * Reset the randomization.
-     * This will have no effect if randomization is not 
+     * This will have no effect if randomization is not
      * through a shared Random generator.
      */
     public static void reset()
     {
         if(useShared) {
-            rand.setSeed(SEED);
+            defaultStream.setSeed(SEED);
+        }
+    }
+
+    /**
+     * Return the state of the stream from which the shared generator
+     * draws on the calling thread: the stream bound to the thread, or
+     * the default stream if none is.
+     * @return The state of the calling thread's stream.
+     */
+    static long getState()
+    {
+        return currentStream().getState();
+    }
+
+    /**
+     * Restore the state of the calling thread's stream, so that it
+     * continues with the numbers that followed the given state.
+     * @param state A state returned by getState.
+     */
+    static void setState(long state)
+    {
+        currentStream().setSeed(state);
+    }
+
+    /**
+     * Make the shared generator draw from the given stream on the
+     * calling thread.
+     * @param stream The stream to use, or null to use the default stream.
+     * @return The stream previously bound to the thread, or null if none was.
+     */
+    public static RandomStream useStream(RandomStream stream)
+    {
+        RandomStream previous = boundStream.get();
+        boundStream.set(stream);
+        return previous;
+    }
+
+    /**
+     * @return The stream the shared generator draws from on this thread.
+     */
+    private static RandomStream currentStream()
+    {
+        RandomStream stream = boundStream.get();
+        return stream != null ? stream : defaultStream;
+    }
+
+    /**
+     * The shared generator. Every request is passed on to the stream
+     * of the calling thread.
+     */
+    private static class SharedRandom extends Random
+    {
+        private static final long serialVersionUID = 1L;
+
+        // Whether the Random constructor has finished. It calls
+        // setSeed, before there is any stream to pass the seed on to.
+        private final boolean constructed;
+
+        SharedRandom()
+        {
+            constructed = true;
+        }
+
+        /**
+         * Restart the stream of the calling thread from the given seed.
+         * @param seed The new seed.
+         */
+        @Override
+        public void setSeed(long seed)
+        {
+            if(constructed) {
+                currentStream().setSeed(seed);
+            }
+        }
+
+        @Override
+        protected int next(int bits)
+        {
+            return currentStream().next(bits);
+        }
+
+        @Override
+        public int nextInt()
+        {
+            return currentStream().nextInt();
+        }
+
+        @Override
+        public int nextInt(int bound)
+        {
+            return currentStream().nextInt(bound);
+        }
+
+        @Override
+        public long nextLong()
+        {
+            return currentStream().nextLong();
+        }
+
+        @Override
+        public double nextDouble()
+        {
+            return currentStream().nextDouble();
+        }
+
+        @Override
+        public boolean nextBoolean()
+        {
+            return currentStream().nextBoolean();
         }
     }
 }
@@ -0,0 +1,495 @@
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Record a run of the simulation, step by step, so that it can be
+ * played back later by a Replayer without simulating it again.
+ *
+ * Most steps are recorded as the changes since the previous one, in
+ * the cells whose species has changed: the organisms that died, those
+ * that moved in from a neighbouring cell, and those that were born.
+ * Organisms that keep their cell, or that swap cells with others of
+ * their species, leave nothing to record, so a step costs space in
+ * proportion to what a viewer would see change. Every so often a
+ * keyframe records the whole population, so that a replayer can start
+ * from the nearest keyframe rather than from the beginning.
+ *
+ * The file is binary. All fixed-size values are big-endian; counts and
+ * cells are written as variable-length integers (seven bits per byte,
+ * least significant first), and lists of cells are sorted and written
+ * as the gaps between successive cells, which are mostly small.
+ * <ul>
+ * <li>Header: the magic number 0x424E4652 ("BNFR"), the format version,
+ *     the depth and width of the field and the number of species.</li>
+ * <li>Frames, one per recorded step: a type byte (K for a keyframe,
+ *     D for a delta), the step (int) and the length of the frame's
+ *     body (int), followed by the body.</li>
+ * <li>A keyframe body: the number of live organisms, then each one's
+ *     cell (as a gap) and species ordinal (byte), in cell order.</li>
+ * <li>A delta body: the deaths, as a count and the cells left empty
+ *     (as gaps); the moves, as a count and, for each move, the cell
+ *     moved from (as a gap) and the direction of the move (byte, 0-7
+ *     for the eight neighbouring cells in row-major order); the births,
+ *     as a count and each one's cell (as a gap) and species ordinal
+ *     (byte). A move or birth replaces any organism that was in its
+ *     cell before.</li>
+ * <li>Trailer, written when the log is closed: the number of keyframes,
+ *     the step (int) and file position (long) of each, the position of
+ *     the trailer (long) and the magic number again.</li>
+ * </ul>
+ * Without the trailer, as after a crash, the frames are still readable.
+ *
+ * If the simulation goes back to a step already recorded, as when it is
+ * reset or a checkpoint is restored, the frames from that step on are
+ * discarded and recording carries on from there, starting with a
+ * keyframe. The log then holds the run as it continued from that step.
+ *
+ * @author David J. Barnes and Michael Kölling
+ * @version 7.1
+ */
+public class ReplayLog implements SimulationObserver, AutoCloseable
+{
+    // The magic number starting and ending a replay log.
+    static final int MAGIC = 0x424E4652;
+    // The version of the format.
+    static final int VERSION = 1;
+    // The types of frame.
+    static final byte KEYFRAME = 'K';
+    static final byte DELTA = 'D';
+    // The size of the header, and of the start of each frame.
+    static final int HEADER_SIZE = 20;
+    static final int FRAME_HEADER_SIZE = 9;
+    // The default number of steps between keyframes.
+    public static final int DEFAULT_KEYFRAME_INTERVAL = 100;
+
+    private final FileChannel channel;
+    private final int depth, width;
+    private final int keyframeInterval;
+    // The live organism in each cell, and the species in each cell as
+    // in a snapshot, at this step and at the last recorded step.
+    private Organism[] occupants, previousOccupants;
+    private byte[] cells, previousCells;
+    // Scratch space for the changes of a step.
+    private int[] deaths = new int[256];
+    private long[] moves = new long[256];
+    private int[] births = new int[256];
+    // The last recorded step, and the number of steps since a keyframe.
+    private int lastStep = -1;
+    private int sinceKeyframe;
+    // The step and file position of each keyframe.
+    private final List<long[]> keyframes = new ArrayList<>();
+    // The step and file position of each frame, and the number of frames.
+    private int[] frameSteps = new int[256];
+    private long[] framePositions = new long[256];
+    private int frameCount;
+    // The body of the frame being built.
+    private final Encoder body = new Encoder();
+    private boolean closed;
+
+    /**
+     * Create a log of a field of the given size, with the default
+     * number of steps between keyframes.
+     * @param file The file to write, replacing any existing contents.
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     * @throws IOException If the file cannot be written.
+     */
+    public ReplayLog(Path file, int depth, int width) throws IOException
+    {
+        this(file, depth, width, DEFAULT_KEYFRAME_INTERVAL);
+    }
+
+    /**
+     * Create a log of a field of the given size.
+     * @param file The file to write, replacing any existing contents.
+     * @param depth The depth of the field.
+     * @param width The width of the field.
+     * @param keyframeInterval The number of steps between keyframes.
+     *                         Fewer make the log smaller; more make
+     *                         seeking faster.
+     * @throws IOException If the file cannot be written.
+     * @throws IllegalArgumentException If the field has more cells
+     *         than a snapshot can hold.
+     */
+    public ReplayLog(Path file, int depth, int width, int keyframeInterval) throws IOException
+    {
+        if(keyframeInterval <= 0) {
+            throw new IllegalArgumentException("The keyframe interval must be > 0: " + keyframeInterval);
+        }
+        int area = FieldSnapshot.area(depth, width);
+        this.depth = depth;
+        this.width = width;
+        this.keyframeInterval = keyframeInterval;
+        occupants = new Organism[area];
+        previousOccupants = new Organism[area];
+        cells = new byte[area];
+        previousCells = new byte[area];
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                   StandardOpenOption.TRUNCATE_EXISTING);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).putInt(depth).putInt(width)
+              .putInt(Species.values().length).flip();
+        writeFully(header);
+    }
+
+    /**
+     * Record the state of the field at a step. A step no later than
+     * the last one recorded, as after a reset, discards the frames
+     * recorded from that step on.
+     * @param step The step.
+     * @param field The field, of the size given when the log was created.
+     */
+    @Override
+    public void showStatus(int step, Field field)
+    {
+        if(closed) {
+            throw new IllegalStateException("The replay log has been closed");
+        }
+        if(field.getDepth() != depth || field.getWidth() != width) {
+            throw new IllegalArgumentException("The field is not " + depth + "x" + width);
+        }
+        Arrays.fill(occupants, null);
+        Arrays.fill(cells, (byte) 0);
+        List<Organism> organisms = field.getOrganisms();
+        for(int slot = 0; slot < organisms.size(); slot++) {
+            Organism anOrganism = organisms.get(slot);
+            if(anOrganism.isAlive()) {
+                int cell = (int) field.getOccupiedCell(slot);
+                occupants[cell] = anOrganism;
+                cells[cell] = (byte) (anOrganism.getSpecies().ordinal() + 1);
+            }
+        }
+        try {
+            if(step <= lastStep) {
+                cutBack(step);
+            }
+            addFrame(step);
+            if(lastStep < 0 || sinceKeyframe == keyframeInterval) {
+                keyframes.add(new long[] { step, channel.position() });
+                writeFrame(KEYFRAME, step, encodeKeyframe());
+                sinceKeyframe = 0;
+            }
+            else {
+                writeFrame(DELTA, step, encodeDelta());
+            }
+        }
+        catch(IOException e) {
+            throw new UncheckedIOException("Cannot record step " + step, e);
+        }
+        sinceKeyframe++;
+        lastStep = step;
+        // The current state becomes the one the next step is compared with.
+        Organism[] oldOccupants = previousOccupants;
+        previousOccupants = occupants;
+        occupants = oldOccupants;
+        byte[] oldCells = previousCells;
+        previousCells = cells;
+        cells = oldCells;
+    }
+
+    /**
+     * Write the trailer and close the file.
+     * @throws IOException If the file cannot be written.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        if(closed) {
+            return;
+        }
+        closed = true;
+        try {
+            long trailerPosition = channel.position();
+            ByteBuffer trailer = ByteBuffer.allocate(Integer.BYTES + keyframes.size() * 12 + 12);
+            trailer.putInt(keyframes.size());
+            for(long[] keyframe : keyframes) {
+                trailer.putInt((int) keyframe[0]).putLong(keyframe[1]);
+            }
+            trailer.putLong(trailerPosition).putInt(MAGIC).flip();
+            writeFully(trailer);
+        }
+        finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Discard the frames recorded from a step on. The state the next
+     * frame would be compared with is then lost, so it is a keyframe.
+     * @param step The first step to discard.
+     * @throws IOException If the file cannot be truncated.
+     */
+    private void cutBack(int step) throws IOException
+    {
+        int first = frameCount;
+        while(first > 0 && frameSteps[first - 1] >= step) {
+            first--;
+        }
+        long position = first < frameCount ? framePositions[first] : channel.position();
+        channel.truncate(position);
+        channel.position(position);
+        frameCount = first;
+        keyframes.removeIf(keyframe -> keyframe[0] >= step);
+        lastStep = first > 0 ? frameSteps[first - 1] : -1;
+        sinceKeyframe = keyframeInterval;
+    }
+
+    /**
+     * Note where the frame of a step starts.
+     * @param step The step.
+     * @throws IOException If the file position cannot be read.
+     */
+    private void addFrame(int step) throws IOException
+    {
+        if(frameCount == frameSteps.length) {
+            frameSteps = Arrays.copyOf(frameSteps, frameCount * 2);
+            framePositions = Arrays.copyOf(framePositions, frameCount * 2);
+        }
+        frameSteps[frameCount] = step;
+        framePositions[frameCount] = channel.position();
+        frameCount++;
+    }
+
+    /**
+     * Encode the whole population.
+     * @return The body of a keyframe.
+     */
+    private Encoder encodeKeyframe()
+    {
+        int population = 0;
+        for(byte id : cells) {
+            if(id != 0) {
+                population++;
+            }
+        }
+        body.reset();
+        body.putVarInt(population);
+        int last = 0;
+        for(int cell = 0; cell < cells.length; cell++) {
+            if(cells[cell] != 0) {
+                body.putVarInt(cell - last);
+                body.put(cells[cell] - 1);
+                last = cell;
+            }
+        }
+        return body;
+    }
+
+    /**
+     * Encode the changes since the previous step. Only the cells whose
+     * species has changed are recorded. An organism found in one of
+     * them that has come from a neighbouring cell that has also changed
+     * is recorded as a move; any other organism in one of them is
+     * recorded as a birth, and any of them left empty as a death.
+     * @return The body of a delta frame.
+     */
+    private Encoder encodeDelta()
+    {
+        int moveCount = 0;
+        int birthCount = 0;
+        for(int cell = nextChange(0); cell >= 0; cell = nextChange(cell + 1)) {
+            if(cells[cell] != 0) {
+                int from = findOrigin(cell);
+                if(from >= 0) {
+                    if(moveCount == moves.length) {
+                        moves = Arrays.copyOf(moves, moveCount * 2);
+                    }
+                    moves[moveCount++] = ((long) from << 32) | cell;
+                    // Mark the cell moved from, so that it is not
+                    // recorded as a death as well.
+                    previousOccupants[from] = null;
+                }
+                else {
+                    if(birthCount == births.length) {
+                        births = Arrays.copyOf(births, birthCount * 2);
+                    }
+                    births[birthCount++] = cell;
+                }
+            }
+        }
+        int deathCount = 0;
+        for(int cell = nextChange(0); cell >= 0; cell = nextChange(cell + 1)) {
+            if(cells[cell] == 0 && previousOccupants[cell] != null) {
+                if(deathCount == deaths.length) {
+                    deaths = Arrays.copyOf(deaths, deathCount * 2);
+                }
+                deaths[deathCount++] = cell;
+            }
+        }
+        // The moves were found in the order of the cells moved to.
+        Arrays.sort(moves, 0, moveCount);
+
+        body.reset();
+        body.putVarInt(deathCount);
+        int last = 0;
+        for(int i = 0; i < deathCount; i++) {
+            body.putVarInt(deaths[i] - last);
+            last = deaths[i];
+        }
+        body.putVarInt(moveCount);
+        last = 0;
+        for(int i = 0; i < moveCount; i++) {
+            int from = (int) (moves[i] >>> 32);
+            body.putVarInt(from - last);
+            body.put(direction(from, (int) moves[i]));
+            last = from;
+        }
+        body.putVarInt(birthCount);
+        last = 0;
+        for(int i = 0; i < birthCount; i++) {
+            body.putVarInt(births[i] - last);
+            body.put(cells[births[i]] - 1);
+            last = births[i];
+        }
+        return body;
+    }
+
+    /**
+     * Find the next cell whose species has changed since the previous step.
+     * @param from The cell to start looking at.
+     * @return The index of the changed cell, or -1 if there is none.
+     */
+    private int nextChange(int from)
+    {
+        int offset = Arrays.mismatch(cells, from, cells.length, previousCells, from, cells.length);
+        return offset < 0 ? -1 : from + offset;
+    }
+
+    /**
+     * Find the neighbouring cell that the organism now in a cell moved
+     * from, if that cell has changed too.
+     * @param cell The cell, which is occupied.
+     * @return The cell moved from, or -1 if the organism did not move
+     *         from a neighbouring cell that has changed.
+     */
+    private int findOrigin(int cell)
+    {
+        Organism anOrganism = occupants[cell];
+        int row = cell / width;
+        int col = cell % width;
+        for(int rowOffset = -1; rowOffset <= 1; rowOffset++) {
+            int nextRow = row + rowOffset;
+            if(nextRow < 0 || nextRow >= depth) {
+                continue;
+            }
+            for(int colOffset = -1; colOffset <= 1; colOffset++) {
+                int nextCol = col + colOffset;
+                if(nextCol >= 0 && nextCol < width) {
+                    int from = nextRow * width + nextCol;
+                    if(previousOccupants[from] == anOrganism && cells[from] != previousCells[from]) {
+                        return from;
+                    }
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Return the code of the direction from one cell to an adjacent one.
+     * @param from The cell moved from.
+     * @param to The cell moved to.
+     * @return 0-7 for the eight neighbouring cells, in row-major order.
+     */
+    private int direction(int from, int to)
+    {
+        int rowOffset = to / width - from / width;
+        int colOffset = to % width - from % width;
+        int code = (rowOffset + 1) * 3 + (colOffset + 1);
+        // Skip the code of the cell itself.
+        return code > 4 ? code - 1 : code;
+    }
+
+    /**
+     * Write one frame.
+     * @param type The type of the frame.
+     * @param step The step recorded.
+     * @param frameBody The body of the frame.
+     * @throws IOException If the file cannot be written.
+     */
+    private void writeFrame(byte type, int step, Encoder frameBody) throws IOException
+    {
+        ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER_SIZE);
+        header.put(type).putInt(step).putInt(frameBody.size()).flip();
+        writeFully(header);
+        writeFully(frameBody.buffer());
+    }
+
+    /**
+     * Write the whole of a buffer to the file.
+     * @param buffer The bytes to write.
+     * @throws IOException If the file cannot be written.
+     */
+    private void writeFully(ByteBuffer buffer) throws IOException
+    {
+        while(buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * A growable buffer of bytes that can write variable-length integers.
+     */
+    private static class Encoder
+    {
+        private byte[] bytes = new byte[4096];
+        private int size;
+
+        /**
+         * Empty the buffer.
+         */
+        void reset()
+        {
+            size = 0;
+        }
+
+        /**
+         * Add one byte.
+         * @param value The byte, in the low eight bits.
+         */
+        void put(int value)
+        {
+            if(size == bytes.length) {
+                bytes = Arrays.copyOf(bytes, size * 2);
+            }
+            bytes[size++] = (byte) value;
+        }
+
+        /**
+         * Add a non-negative integer, seven bits per byte, least
+         * significant first, with the high bit set on all but the last.
+         * @param value The integer.
+         */
+        void putVarInt(int value)
+        {
+            while((value & ~0x7f) != 0) {
+                put((value & 0x7f) | 0x80);
+                value >>>= 7;
+            }
+            put(value);
+        }
+
+        /**
+         * @return The number of bytes added.
+         */
+        int size()
+        {
+            return size;
+        }
+
+        /**
+         * @return A buffer holding the bytes added.
+         */
+        ByteBuffer buffer()
+        {
+            return ByteBuffer.wrap(bytes, 0, size);
+        }
+    }
+}
@@ -0,0 +1,444 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Play back a run recorded by a ReplayLog. Any recorded step can be
+ * reached directly: the replayer starts from the nearest keyframe at or
+ * before the step and applies the changes recorded since, so the cost
+ * of a seek depends on the interval between keyframes rather than on
+ * the length of the run. Seeking forward from the current step applies
+ * only the changes in between.
+ *
+ * @author David J. Barnes and Michael Kölling
+ * @version 7.1
+ */
+public class Replayer implements AutoCloseable
+{
+    // The size of the buffer first used for reading frames. It grows
+    // to hold the largest frame read.
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int SPECIES_COUNT = Species.values().length;
+
+    private final Path file;
+    private final FileChannel channel;
+    private final int depth, width;
+    // The step and file position of each keyframe, in order.
+    private int[] keyframeSteps;
+    private long[] keyframePositions;
+    // The position just after the last complete frame.
+    private long end;
+    // The first and last steps recorded.
+    private final int firstStep, lastStep;
+
+    // The species in each cell at the current step, as in a snapshot.
+    private final byte[] cells;
+    // The number of live organisms of each species at the current step.
+    private final int[] counts = new int[SPECIES_COUNT];
+    // The current step, or -1 before the first seek, and the position
+    // of the frame after it.
+    private int currentStep = -1;
+    private long nextFrame;
+
+    // The bytes read from the file, and the file position of the first.
+    private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).limit(0);
+    private long bufferStart;
+    // Scratch space for the moves of a frame.
+    private int[] moveTargets = new int[256];
+    private byte[] moveSpecies = new byte[256];
+
+    /**
+     * Open a replay log for playing back.
+     * @param file The log to read.
+     * @throws IOException If the file cannot be read, is not a replay
+     *                     log, or holds no steps.
+     */
+    public Replayer(Path file) throws IOException
+    {
+        this.file = file;
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            ByteBuffer header = read(0, ReplayLog.HEADER_SIZE);
+            if(header.getInt() != ReplayLog.MAGIC || header.getInt() != ReplayLog.VERSION) {
+                throw new IOException(file + " is not a replay log of this version");
+            }
+            depth = header.getInt();
+            width = header.getInt();
+            int area;
+            try {
+                area = FieldSnapshot.area(depth, width);
+            }
+            catch(IllegalArgumentException e) {
+                throw new IOException(file + " records a field that cannot be played back", e);
+            }
+            if(header.getInt() != SPECIES_COUNT) {
+                throw new IOException(file + " was recorded with other species");
+            }
+            if(!readTrailer()) {
+                // The log was not closed: find the keyframes by reading
+                // every frame header.
+                indexFrames();
+            }
+            if(keyframeSteps.length == 0) {
+                throw new IOException(file + " holds no steps");
+            }
+            firstStep = keyframeSteps[0];
+            lastStep = findLastStep();
+            cells = new byte[area];
+        }
+        catch(IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return The depth of the recorded field.
+     */
+    public int getDepth()
+    {
+        return depth;
+    }
+
+    /**
+     * @return The width of the recorded field.
+     */
+    public int getWidth()
+    {
+        return width;
+    }
+
+    /**
+     * @return The first step recorded.
+     */
+    public int getFirstStep()
+    {
+        return firstStep;
+    }
+
+    /**
+     * @return The last step recorded.
+     */
+    public int getLastStep()
+    {
+        return lastStep;
+    }
+
+    /**
+     * Return the state of the field at a step.
+     * @param step The step to go to, between the first and last steps.
+     *             If it was not recorded, the latest step before it is
+     *             returned instead.
+     * @return A snapshot of the field at the step.
+     * @throws IOException If the log cannot be read or is corrupt.
+     */
+    public FieldSnapshot seek(int step) throws IOException
+    {
+        if(step < firstStep || step > lastStep) {
+            throw new IllegalArgumentException("Step " + step + " is outside the steps recorded, "
+                                               + firstStep + " to " + lastStep);
+        }
+        int keyframe = Arrays.binarySearch(keyframeSteps, step);
+        if(keyframe < 0) {
+            keyframe = -keyframe - 2;
+        }
+        // Carry on from the current step if no keyframe lies between it
+        // and the step wanted.
+        if(currentStep < keyframeSteps[keyframe] || currentStep > step) {
+            currentStep = -1;
+            nextFrame = keyframePositions[keyframe];
+        }
+        while(nextFrame < end) {
+            ByteBuffer frame = read(nextFrame, ReplayLog.FRAME_HEADER_SIZE);
+            byte type = frame.get();
+            int frameStep = frame.getInt();
+            int size = frame.getInt();
+            if(frameStep > step) {
+                break;
+            }
+            frame = read(nextFrame + ReplayLog.FRAME_HEADER_SIZE, size);
+            int bodyEnd = frame.position() + size;
+            if(type == ReplayLog.KEYFRAME) {
+                applyKeyframe(frame);
+            }
+            else if(type == ReplayLog.DELTA && currentStep >= 0) {
+                applyDelta(frame);
+            }
+            else {
+                throw new IOException(file + " is corrupt at position " + nextFrame);
+            }
+            if(frame.position() != bodyEnd) {
+                throw new IOException(file + " is corrupt at position " + nextFrame);
+            }
+            currentStep = frameStep;
+            nextFrame += ReplayLog.FRAME_HEADER_SIZE + size;
+        }
+        return FieldSnapshot.of(currentStep, depth, width, cells, counts);
+    }
+
+    /**
+     * Close the log.
+     * @throws IOException If the file cannot be closed.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        channel.close();
+    }
+
+    /**
+     * Replace the current state with that held by a keyframe.
+     * @param frame The body of the keyframe.
+     * @throws IOException If the keyframe is corrupt.
+     */
+    private void applyKeyframe(ByteBuffer frame) throws IOException
+    {
+        Arrays.fill(cells, (byte) 0);
+        Arrays.fill(counts, 0);
+        int population = getVarInt(frame);
+        int cell = 0;
+        for(int i = 0; i < population; i++) {
+            cell = checkCell(cell + getVarInt(frame));
+            setCell(cell, checkSpecies(frame.get()) + 1);
+        }
+    }
+
+    /**
+     * Apply the changes held by a delta frame to the current state.
+     * The moves are applied in two passes, since one organism may move
+     * into a cell that another has just left.
+     * @param frame The body of the delta frame.
+     * @throws IOException If the frame is corrupt.
+     */
+    private void applyDelta(ByteBuffer frame) throws IOException
+    {
+        int deaths = getVarInt(frame);
+        int cell = 0;
+        for(int i = 0; i < deaths; i++) {
+            cell = checkCell(cell + getVarInt(frame));
+            setCell(cell, 0);
+        }
+
+        int moves = getVarInt(frame);
+        if(moves > moveTargets.length) {
+            moveTargets = new int[Math.max(moves, moveTargets.length * 2)];
+            moveSpecies = new byte[moveTargets.length];
+        }
+        cell = 0;
+        for(int i = 0; i < moves; i++) {
+            cell = checkCell(cell + getVarInt(frame));
+            int direction = frame.get();
+            if(direction < 0 || direction >= 8) {
+                throw new IOException(file + " holds an unknown move");
+            }
+            // Undo the skipping of the cell itself.
+            int code = direction >= 4 ? direction + 1 : direction;
+            int row = cell / width + code / 3 - 1;
+            int col = cell % width + code % 3 - 1;
+            if(row < 0 || row >= depth || col < 0 || col >= width) {
+                throw new IOException(file + " holds a move off the field");
+            }
+            moveTargets[i] = row * width + col;
+            moveSpecies[i] = cells[cell];
+            cells[cell] = 0;
+        }
+        for(int i = 0; i < moves; i++) {
+            // The organism is counted already; any it replaces is not.
+            setCell(moveTargets[i], 0);
+            cells[moveTargets[i]] = moveSpecies[i];
+        }
+
+        int births = getVarInt(frame);
+        cell = 0;
+        for(int i = 0; i < births; i++) {
+            cell = checkCell(cell + getVarInt(frame));
+            setCell(cell, checkSpecies(frame.get()) + 1);
+        }
+    }
+
+    /**
+     * Set the species in a cell, keeping the counts up to date.
+     * @param cell The cell.
+     * @param id The species' ordinal plus one, or zero to empty the cell.
+     */
+    private void setCell(int cell, int id)
+    {
+        int old = cells[cell];
+        if(old != 0) {
+            counts[old - 1]--;
+        }
+        if(id != 0) {
+            counts[id - 1]++;
+        }
+        cells[cell] = (byte) id;
+    }
+
+    /**
+     * Read the keyframe index from the trailer of a closed log.
+     * @return true if the log has a trailer, false if it was not closed.
+     * @throws IOException If the file cannot be read.
+     */
+    private boolean readTrailer() throws IOException
+    {
+        long size = channel.size();
+        // The smallest trailer: a count, a position and the magic number.
+        if(size < ReplayLog.HEADER_SIZE + 16) {
+            return false;
+        }
+        ByteBuffer tail = read(size - 12, 12);
+        long trailerPosition = tail.getLong();
+        if(tail.getInt() != ReplayLog.MAGIC || trailerPosition < ReplayLog.HEADER_SIZE
+           || trailerPosition > size - 16) {
+            return false;
+        }
+        ByteBuffer trailer = read(trailerPosition, (int) (size - trailerPosition));
+        int keyframes = trailer.getInt();
+        if(keyframes < 0 || (long) keyframes * 12 + 16 != size - trailerPosition) {
+            return false;
+        }
+        keyframeSteps = new int[keyframes];
+        keyframePositions = new long[keyframes];
+        for(int i = 0; i < keyframes; i++) {
+            keyframeSteps[i] = trailer.getInt();
+            keyframePositions[i] = trailer.getLong();
+        }
+        end = trailerPosition;
+        return true;
+    }
+
+    /**
+     * Find the keyframes of a log that was not closed, by reading the
+     * header of every complete frame.
+     * @throws IOException If the file cannot be read.
+     */
+    private void indexFrames() throws IOException
+    {
+        long size = channel.size();
+        int[] steps = new int[16];
+        long[] positions = new long[16];
+        int keyframes = 0;
+        long position = ReplayLog.HEADER_SIZE;
+        while(position + ReplayLog.FRAME_HEADER_SIZE <= size) {
+            ByteBuffer frame = read(position, ReplayLog.FRAME_HEADER_SIZE);
+            byte type = frame.get();
+            int step = frame.getInt();
+            long next = position + ReplayLog.FRAME_HEADER_SIZE + frame.getInt();
+            if(next > size) {
+                // The last frame was cut short.
+                break;
+            }
+            if(type == ReplayLog.KEYFRAME) {
+                if(keyframes == steps.length) {
+                    steps = Arrays.copyOf(steps, keyframes * 2);
+                    positions = Arrays.copyOf(positions, keyframes * 2);
+                }
+                steps[keyframes] = step;
+                positions[keyframes] = position;
+                keyframes++;
+            }
+            position = next;
+        }
+        keyframeSteps = Arrays.copyOf(steps, keyframes);
+        keyframePositions = Arrays.copyOf(positions, keyframes);
+        end = position;
+    }
+
+    /**
+     * Find the last step by reading the frame headers after the last keyframe.
+     * @return The step of the last frame.
+     * @throws IOException If the file cannot be read.
+     */
+    private int findLastStep() throws IOException
+    {
+        int step = 0;
+        long position = keyframePositions[keyframePositions.length - 1];
+        while(position < end) {
+            ByteBuffer frame = read(position, ReplayLog.FRAME_HEADER_SIZE);
+            frame.get();
+            step = frame.getInt();
+            position += ReplayLog.FRAME_HEADER_SIZE + frame.getInt();
+        }
+        return step;
+    }
+
+    /**
+     * Return a buffer holding the bytes at a position in the file.
+     * Bytes after them are read too, so that reading the frames of a
+     * run one after another takes few reads of the file.
+     * @param position The position of the first byte.
+     * @param length The number of bytes needed.
+     * @return The buffer, positioned at the first byte.
+     * @throws IOException If the file cannot be read, or ends early.
+     */
+    private ByteBuffer read(long position, int length) throws IOException
+    {
+        if(length < 0) {
+            throw new IOException(file + " is corrupt at position " + position);
+        }
+        if(position < bufferStart || position + length > bufferStart + buffer.limit()) {
+            if(length > buffer.capacity()) {
+                buffer = ByteBuffer.allocate(Math.max(length, buffer.capacity() * 2));
+            }
+            buffer.clear();
+            bufferStart = position;
+            while(buffer.position() < length) {
+                if(channel.read(buffer, position + buffer.position()) < 0) {
+                    throw new EOFException(file + " ends early");
+                }
+            }
+            buffer.flip();
+        }
+        return buffer.position((int) (position - bufferStart));
+    }
+
+    /**
+     * Read a variable-length integer, as written by a ReplayLog.
+     * @param frame The buffer to read from.
+     * @return The integer.
+     * @throws IOException If the integer is too long.
+     */
+    private int getVarInt(ByteBuffer frame) throws IOException
+    {
+        int value = 0;
+        for(int shift = 0; shift < 32; shift += 7) {
+            int b = frame.get();
+            value |= (b & 0x7f) << shift;
+            if(b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException(file + " holds an integer that is too long");
+    }
+
+    /**
+     * Check that a cell lies within the field.
+     * @param cell The row-major index of the cell.
+     * @return The cell.
+     * @throws IOException If the cell lies outside the field.
+     */
+    private int checkCell(int cell) throws IOException
+    {
+        if(cell < 0 || cell >= cells.length) {
+            throw new IOException(file + " holds a cell outside the field: " + cell);
+        }
+        return cell;
+    }
+
+    /**
+     * Check that a species ordinal is known.
+     * @param species The ordinal.
+     * @return The ordinal.
+     * @throws IOException If there is no such species.
+     */
+    private int checkSpecies(int species) throws IOException
+    {
+        if(species < 0 || species >= SPECIES_COUNT) {
+            throw new IOException(file + " holds an unknown species: " + species);
+        }
+        return species;
+    }
+}
@@ -0,0 +1,18 @@
+/**
+ * Something that follows the progress of a simulation, such as a view
+ * of the field. Simulator notifies its observers after a reset and
+ * after every step. A simulation with no observers does no rendering
+ * work at all, so it can run on a machine without a display.
+ *
+ * @author David J. Barnes and Michael Kölling
+ * @version 7.1
+ */
+public interface SimulationObserver
+{
+    /**
+     * Show the current status of the field.
+     * @param step Which iteration step it is.
+     * @param field The field whose status is to be displayed.
+     */
+    void showStatus(int step, Field field);
+}
@@ -1,3 +1,7 @@
+import java.awt.GraphicsEnvironment;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
 import java.util.*;
 
 /**
@@ -14,21 +18,42 @@ public class Simulator
     private static final int DEFAULT_WIDTH = 120;
     // The default depth of the grid.
     private static final int DEFAULT_DEPTH = 80;
+    // The default number of steps per second when a view is shown.
+    private static final double DEFAULT_STEPS_PER_SECOND = 20;
     // The probability that an will be created in any given grid position.
-    private static final double WOLF_CREATION_PROBABILITY = 0.03;
-    private static final double HARE_CREATION_PROBABILITY = 0.08;
-    private static final double DEER_CREATION_PROBABILITY = 0.02;
-    private static final double OWL_CREATION_PROBABILITY = 0.06;
-    private static final double BEAR_CREATION_PROBABILITY = 0.01;
-    private static final double BERRY_CREATION_PROBABILITY = 0.08;
-    private static final double ACORN_CREATION_PROBABILITY = 0.04;
+    static final double WOLF_CREATION_PROBABILITY = 0.03;
+    static final double HARE_CREATION_PROBABILITY = 0.08;
+    static final double DEER_CREATION_PROBABILITY = 0.02;
+    static final double OWL_CREATION_PROBABILITY = 0.06;
+    static final double BEAR_CREATION_PROBABILITY = 0.01;
+    static final double BERRY_CREATION_PROBABILITY = 0.08;
+    static final double ACORN_CREATION_PROBABILITY = 0.04;
 
     // The current state of the field.
     private Field field;
+    // The field in which the next state is built. It swaps roles with
+    // 'field' after every step so that neither is ever reallocated.
+    private Field nextFieldState;
+    // Paces the steps of a run.
+    private StepScheduler scheduler;
+    // Runs each step on several threads, or null to step on this thread.
+    private ParallelStepper stepper;
+    // The condition the population must meet for a run to carry on.
+    private Viability viability = Viability.HARES_AND_WOLVES;
+    // Records the population at every step, or null if none is kept.
+    private PopulationHistory history;
+    // Whether the population is printed after every step.
+    private boolean printStats;
+    // The file to which checkpoints are saved, or null if none are.
+    private Path checkpointFile;
+    // The number of steps between checkpoints.
+    private int checkpointInterval;
     // The current step of the simulation.
     private int step;
-    // A graphical view of the simulation.
-    private final SimulatorView view;
+    // The observers of the simulation, such as a graphical view.
+    private final List<SimulationObserver> observers = new ArrayList<>();
+    // The observers told about every step, such as a replay log.
+    private final List<SimulationObserver> recorders = new ArrayList<>();
 
     /**
      * Construct a simulation field with default size.
@@ -40,10 +65,36 @@ public class Simulator
     
     /**
      * Create a simulation field with the given size.
+     * A graphical view is shown unless there is no display.
      * @param depth Depth of the field. Must be greater than zero.
      * @param width Width of the field. Must be greater than zero.
      */
     public Simulator(int depth, int width)
+    {
+        this(depth, width, !GraphicsEnvironment.isHeadless());
+    }
+
+    /**
+     * Create a simulation field with the given size, with or without
+     * a graphical view. Without one, the simulation runs headless.
+     * @param depth Depth of the field. Must be greater than zero.
+     * @param width Width of the field. Must be greater than zero.
+     * @param showView Whether to show a graphical view.
+     */
+    public Simulator(int depth, int width, boolean showView)
+    {
+        this(depth, width, showView, Parameters.DEFAULT);
+    }
+
+    /**
+     * Create a simulation field with the given size and species
+     * parameters, with or without a graphical view.
+     * @param depth Depth of the field. Must be greater than zero.
+     * @param width Width of the field. Must be greater than zero.
+     * @param showView Whether to show a graphical view.
+     * @param parameters The parameters of the species.
+     */
+    public Simulator(int depth, int width, boolean showView, Parameters parameters)
     {
         if(width <= 0 || depth <= 0) {
             System.out.println("The dimensions must be >= zero.");
@@ -53,7 +104,15 @@ public class Simulator
         }
         
         field = new Field(depth, width);
-        view = new SimulatorView(depth, width);
+        field.setParameters(parameters);
+        nextFieldState = new Field(field);
+        if(showView) {
+            observers.add(new SimulatorView(depth, width));
+            scheduler = StepScheduler.fixedRate(DEFAULT_STEPS_PER_SECOND);
+        }
+        else {
+            scheduler = StepScheduler.asFastAsPossible();
+        }
 
         reset();
     }
@@ -74,10 +133,20 @@ public class Simulator
      */
     public void simulate(int numSteps)
     {
-        reportStats();
-        for(int n = 1; n <= numSteps && field.isViable(); n++) {
-            simulateOneStep();
-            delay(50);         // adjust this to change execution speed
+        if(printStats) {
+            reportStats();
+        }
+        scheduler.start();
+        for(int n = 1; n <= numSteps && field.isViable(viability); n++) {
+            computeOneStep();
+            if(scheduler.stepComputed()) {
+                notifyObservers();
+            }
+            scheduler.awaitNextStep();
+        }
+        if(printStats) {
+            System.out.printf("Steps per second: %.1f (%d not shown)%n",
+                              scheduler.getAchievedRate(), scheduler.getDroppedFrames());
         }
     }
     
@@ -86,76 +155,288 @@ public class Simulator
      * Iterate over the whole field updating the state of each fox and rabbit.
      */
     public void simulateOneStep()
+    {
+        computeOneStep();
+        notifyObservers();
+    }
+
+    /**
+     * Compute the next state of the field, without showing it.
+     */
+    private void computeOneStep()
     {
         step++;
         // Use a separate Field to store the starting state of
-        // the next step.
-        Field nextFieldState = new Field(field.getDepth(), field.getWidth());
+        // the next step. It still holds the state from two steps
+        // ago, so empty it first.
+        nextFieldState.clear();
 
-        List<Organism> organisms = field.getOrganisms();
-        for (Organism anOrganism : organisms) {
-            anOrganism.act(field, nextFieldState);
+        if(stepper != null) {
+            stepper.step(field, nextFieldState);
+        }
+        else {
+            List<Organism> organisms = field.getOrganisms();
+            for (Organism anOrganism : organisms) {
+                anOrganism.act(field, nextFieldState);
+            }
         }
         
-        // Replace the old state with the new one.
+        // Swap the buffers: the new state becomes current and the
+        // old one is recycled on the following step.
+        Field oldFieldState = field;
         field = nextFieldState;
+        nextFieldState = oldFieldState;
 
-        reportStats();
-        view.showStatus(step, field);
+        recordStats();
+        if(checkpointFile != null && step % checkpointInterval == 0) {
+            try {
+                saveCheckpoint(checkpointFile);
+            }
+            catch(IOException e) {
+                throw new UncheckedIOException("Cannot save a checkpoint at step " + step, e);
+            }
+        }
     }
-        
+
+    /**
+     * Save the complete state of the simulation, so that it can be
+     * resumed later with restoreCheckpoint.
+     * @param file The file to save to, replacing any existing contents.
+     * @throws IOException If the file cannot be written.
+     */
+    public void saveCheckpoint(Path file) throws IOException
+    {
+        Checkpoint.save(file, step, field);
+    }
+
+    /**
+     * Resume the simulation from a saved state. It then continues
+     * exactly as the saved simulation would have. The restored step is
+     * recorded and shown as a step is, so a replay log goes back to it.
+     * @param file The file to restore from. It must hold a field of
+     *             the same size as this simulation's, saved with the
+     *             same parameters.
+     * @throws IOException If the file cannot be read or does not fit.
+     */
+    public void restoreCheckpoint(Path file) throws IOException
+    {
+        int savedStep = Checkpoint.restore(file, field);
+        nextFieldState.clear();
+        step = savedStep;
+        recordStats();
+        notifyObservers();
+    }
+
+    /**
+     * Save a checkpoint regularly while the simulation runs. Each one
+     * replaces the previous one.
+     * @param file The file to save to, or null to stop saving checkpoints.
+     * @param interval The number of steps between checkpoints.
+     */
+    public void setCheckpoints(Path file, int interval)
+    {
+        if(file != null && interval <= 0) {
+            throw new IllegalArgumentException("The interval must be > 0: " + interval);
+        }
+        checkpointFile = file;
+        checkpointInterval = interval;
+    }
+
+    /**
+     * Choose how the steps of a run are paced.
+     * @param scheduler The scheduler to use.
+     */
+    public void setScheduler(StepScheduler scheduler)
+    {
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * @return The scheduler pacing the steps of a run. After a run,
+     *         it reports the rate achieved.
+     */
+    public StepScheduler getScheduler()
+    {
+        return scheduler;
+    }
+
+    /**
+     * Choose the condition the population must meet for a run to carry
+     * on, such as "any predator and any prey". By default, a run stops
+     * once the hares or the wolves have died out.
+     * @param viability The condition to use.
+     */
+    public void setViability(Viability viability)
+    {
+        this.viability = viability;
+    }
+
+    /**
+     * Choose the parameters of the species, such as their breeding
+     * ages and litter sizes. They apply from the next step on; the
+     * creation probabilities apply from the next reset.
+     * @param parameters The parameters to use.
+     */
+    public void setParameters(Parameters parameters)
+    {
+        field.setParameters(parameters);
+        nextFieldState.setParameters(parameters);
+    }
+
+    /**
+     * @return The parameters of the species.
+     */
+    public Parameters getParameters()
+    {
+        return field.getParameters();
+    }
+
+    /**
+     * Keep a history of the population, recorded at every step from
+     * now on. The caller remains responsible for closing it.
+     * @param history The history to record into, or null to keep none.
+     */
+    public void setHistory(PopulationHistory history)
+    {
+        this.history = history;
+    }
+
+    /**
+     * Choose whether the population is printed after every step, and
+     * the rate achieved at the end of a run. Either way the rate can be
+     * read from getScheduler(). Printing is off by default, since
+     * writing to the terminal at every step slows down a fast run
+     * considerably.
+     * @param printStats Whether to print the population.
+     */
+    public void setPrintStats(boolean printStats)
+    {
+        this.printStats = printStats;
+    }
+
+    /**
+     * Choose how many threads are used for each step. With more than
+     * one thread, the field is split into tiles that act in parallel.
+     * @param parallelism The number of threads; 1 runs each step on
+     *                    the calling thread.
+     */
+    public void setParallelism(int parallelism)
+    {
+        if(stepper != null) {
+            stepper.shutdown();
+            stepper = null;
+        }
+        if(parallelism > 1) {
+            stepper = new ParallelStepper(parallelism);
+        }
+    }
+
     /**
      * Reset the simulation to a starting position.
      */
     public void reset()
+    {
+        reset(1.0);
+    }
+
+    /**
+     * Reset the simulation to a starting position that is more or less
+     * crowded than usual.
+     * @param density The factor by which the chance of a cell being
+     *                populated with each species is multiplied.
+     */
+    public void reset(double density)
     {
         step = 0;
-        populate();
-        view.showStatus(step, field);
+        populate(density);
+        recordStats();
+        notifyObservers();
+    }
+
+    /**
+     * Return the current state of the field.
+     * @return The field as it stands after the latest step.
+     */
+    public Field getField()
+    {
+        return field;
+    }
+
+    /**
+     * Add an observer, to be notified after every step.
+     * @param observer The observer to add.
+     */
+    public void addObserver(SimulationObserver observer)
+    {
+        observers.add(observer);
+    }
+
+    /**
+     * Add a recorder, to be notified after every step that is computed,
+     * including those that the scheduler skips showing. A recorder must
+     * keep up, since the simulation waits for it.
+     * @param recorder The recorder to add, such as a ReplayLog.
+     */
+    public void addRecorder(SimulationObserver recorder)
+    {
+        recorders.add(recorder);
+    }
+
+    /**
+     * Tell every observer about the current state of the field.
+     */
+    private void notifyObservers()
+    {
+        for(SimulationObserver observer : observers) {
+            observer.showStatus(step, field);
+        }
     }
     
     /**
      * Randomly populate the field with foxes and rabbits.
+     * @param density The factor by which the creation probabilities
+     *                are multiplied.
      */
-    private void populate()
+    private void populate(double density)
     {
         Random rand = Randomizer.getRandom();
+        Parameters parameters = field.getParameters();
         field.clear();
         for(int row = 0; row < field.getDepth(); row++) {
             for(int col = 0; col < field.getWidth(); col++) {
-                if(rand.nextDouble() <= WOLF_CREATION_PROBABILITY) {
-                    Location location = new Location(row, col);
-                    Wolf wolf = new Wolf(true, location);
+                if(rand.nextDouble() <= parameters.creationProbability(Species.WOLF) * density) {
+                    Location location = field.getLocation(row, col);
+                    Wolf wolf = new Wolf(true, location, parameters);
                     field.placeOrganism(wolf, location);
                 }
-                else if(rand.nextDouble() <= HARE_CREATION_PROBABILITY) {
-                    Location location = new Location(row, col);
-                    Hare hare = new Hare(true, location);
+                else if(rand.nextDouble() <= parameters.creationProbability(Species.HARE) * density) {
+                    Location location = field.getLocation(row, col);
+                    Hare hare = new Hare(true, location, parameters);
                     field.placeOrganism(hare, location);
                 }
-                else if(rand.nextDouble() <= DEER_CREATION_PROBABILITY) {
-                    Location location = new Location(row, col);
-                    Deer deer = new Deer(true, location);
+                else if(rand.nextDouble() <= parameters.creationProbability(Species.DEER) * density) {
+                    Location location = field.getLocation(row, col);
+                    Deer deer = new Deer(true, location, parameters);
                     field.placeOrganism(deer, location);
                 }
-                else if(rand.nextDouble() <= BEAR_CREATION_PROBABILITY) {
-                    Location location = new Location(row, col);
-                    Bear bear = new Bear(true, location);
+                else if(rand.nextDouble() <= parameters.creationProbability(Species.BEAR) * density) {
+                    Location location = field.getLocation(row, col);
+                    Bear bear = new Bear(true, location, parameters);
                     field.placeOrganism(bear, location);
                 }
-                else if(rand.nextDouble() <= OWL_CREATION_PROBABILITY) {
-                    Location location = new Location(row, col);
-                    Owl owl = new Owl(true, location);
+                else if(rand.nextDouble() <= parameters.creationProbability(Species.OWL) * density) {
+                    Location location = field.getLocation(row, col);
+                    Owl owl = new Owl(true, location, parameters);
                     field.placeOrganism(owl, location);
                 }
-                else if(rand.nextDouble() <= BERRY_CREATION_PROBABILITY) {
-                    Location location = new Location(row, col);
-                    Berry berry = new Berry(true, location);
+                else if(rand.nextDouble() <= parameters.creationProbability(Species.BERRY) * density) {
+                    Location location = field.getLocation(row, col);
+                    Berry berry = new Berry(true, location, parameters);
                     field.placeOrganism(berry, location);
                 }
-                else if(rand.nextDouble() <= ACORN_CREATION_PROBABILITY) {
-                    Location location = new Location(row, col);
-                    Acorn acorn = new Acorn(true, location);
+                else if(rand.nextDouble() <= parameters.creationProbability(Species.ACORN) * density) {
+                    Location location = field.getLocation(row, col);
+                    Acorn acorn = new Acorn(true, location, parameters);
                     field.placeOrganism(acorn, location);
                 }
             }
@@ -168,20 +449,23 @@ public class Simulator
     public void reportStats()
     {
         //System.out.print("Step: " + step + " ");
-        field.fieldStats();
+        System.out.println(field.describe());
     }
-    
+
     /**
-     * Pause for a given time.
-     * @param milliseconds The time to pause for, in milliseconds
+     * Record the population of the current step in the history, pass
+     * the step to the recorders, and print it if asked to.
      */
-    private void delay(int milliseconds)
+    private void recordStats()
     {
-        try {
-            Thread.sleep(milliseconds);
+        if(history != null) {
+            history.record(step, field);
+        }
+        for(SimulationObserver recorder : recorders) {
+            recorder.showStatus(step, field);
         }
-        catch(InterruptedException e) {
-            // ignore
+        if(printStats) {
+            reportStats();
         }
     }
 }
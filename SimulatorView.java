@@ -1,19 +1,31 @@
 import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.lang.reflect.InvocationTargetException;
 import javax.swing.*;
-import java.util.LinkedHashMap;
+import java.util.Arrays;
+import java.util.EnumMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * A graphical view of the simulation grid.
- * The view displays a colored rectangle for each location 
+ * The view displays a colored rectangle for each location
  * representing its contents. It uses a default background color.
  * Colors for each type of species can be defined using the
  * setColor method.
- * 
+ *
+ * The view is drawn on a thread of its own. After each step, the
+ * simulation only takes a snapshot of the field and hands it over,
+ * so it never waits for the view. If the simulation produces steps
+ * faster than they can be drawn, the renderer skips to the latest one.
+ * Swing components are only touched on the event dispatch thread.
+ *
  * @author David J. Barnes and Michael Kölling
- * @version 7.0
+ * @version 7.1
  */
-public class SimulatorView extends JFrame
+public class SimulatorView extends JFrame implements SimulationObserver
 {
     // Colors used for empty locations.
     private static final Color EMPTY_COLOR = new Color(136,231,136);
@@ -26,12 +38,25 @@ public class SimulatorView extends JFrame
     private final JLabel stepLabel;
     private final JLabel population;
     private final FieldView fieldView;
-    
+
     // A map for storing colors for participants in the simulation
-    private final Map<Class<?>, Color> colors;
-    // A statistics object computing and storing simulation information
+    private final Map<Species, Color> colors;
+    // A statistics object computing and storing simulation information.
+    // It is only used by the renderer.
     private final FieldStats stats;
 
+    // The thread drawing the snapshots.
+    private final transient Thread renderer;
+    // The latest snapshot not yet taken by the renderer, if any.
+    private final AtomicReference<FieldSnapshot> pending = new AtomicReference<>();
+    // A snapshot that was replaced before it was drawn, whose storage
+    // can be reused. Only used by the simulation thread.
+    private transient FieldSnapshot unused;
+    // The number of snapshots replaced before they were drawn.
+    private long droppedFrames;
+    // The step of the latest snapshot shown on screen.
+    private volatile int drawnStep = -1;
+
     /**
      * Create a view of the given width and height.
      * @param height The simulation's height.
@@ -40,49 +65,55 @@ public class SimulatorView extends JFrame
     public SimulatorView(int height, int width)
     {
         stats = new FieldStats();
-        colors = new LinkedHashMap<>();
-        setColor(Hare.class, new Color(255,255,204)); // Light Yellow
-        setColor(Wolf.class, new Color(70,70,70)); //Dark grey
-        setColor(Deer.class, Color.orange);
-        setColor(Bear.class, new Color(102,51,0)); //  Brown
-        setColor(Owl.class, new Color(255,204,0)); //Dark yellow
-        setColor(Berry.class, Color.red);
-        setColor(Acorn.class, Color.pink);
+        colors = new EnumMap<>(Species.class);
+        setColor(Species.HARE, new Color(255,255,204)); // Light Yellow
+        setColor(Species.WOLF, new Color(70,70,70)); //Dark grey
+        setColor(Species.DEER, Color.orange);
+        setColor(Species.BEAR, new Color(102,51,0)); //  Brown
+        setColor(Species.OWL, new Color(255,204,0)); //Dark yellow
+        setColor(Species.BERRY, Color.red);
+        setColor(Species.ACORN, Color.pink);
 
         setTitle("Canadian Forest Simulation");
         stepLabel = new JLabel(STEP_PREFIX, JLabel.CENTER);
         population = new JLabel(POPULATION_PREFIX, JLabel.CENTER);
-        
+
         setLocation(100, 50);
-        
+
         fieldView = new FieldView(height, width);
 
         Container contents = getContentPane();
         contents.add(stepLabel, BorderLayout.NORTH);
         contents.add(fieldView, BorderLayout.CENTER);
         contents.add(population, BorderLayout.SOUTH);
-        pack();
-        setVisible(true);
+        SwingUtilities.invokeLater(() -> {
+            pack();
+            setVisible(true);
+        });
+
+        renderer = new Thread(this::render, "Simulator renderer");
+        renderer.setDaemon(true);
+        renderer.start();
     }
-    
+
     /**
-     * Define a color to be used for a given class of animal.
-     * @param animalClass The animal's Class object.
-     * @param color The color to be used for the given class.
+     * Define a color to be used for a given species.
+     * @param species The species.
+     * @param color The color to be used for the given species.
      */
-    public void setColor(Class<?> animalClass, Color color)
+    public void setColor(Species species, Color color)
     {
-        colors.put(animalClass, color);
+        colors.put(species, color);
     }
 
     /**
-     * @return The color to be used for a given class of animal.
+     * @return The color to be used for a given species.
      */
-    private Color getColor(Class<?> animalClass)
+    private Color getColor(Species species)
     {
-        Color col = colors.get(animalClass);
+        Color col = colors.get(species);
         if(col == null) {
-            // no color defined for this class
+            // no color defined for this species
             return UNKNOWN_COLOR;
         }
         else {
@@ -92,36 +123,38 @@ public class SimulatorView extends JFrame
 
     /**
      * Show the current status of the field.
+     * Only a snapshot is taken here; it is drawn later by the renderer.
      * @param step Which iteration step it is.
      * @param field The field whose status is to be displayed.
      */
+    @Override
     public void showStatus(int step, Field field)
     {
-        if(!isVisible()) {
-            setVisible(true);
-        }
-            
-        stepLabel.setText(STEP_PREFIX + step);
-        stats.reset();
-        
-        fieldView.preparePaint();
-
-        for(int row = 0; row < field.getDepth(); row++) {
-            for(int col = 0; col < field.getWidth(); col++) {
-                Object animal = field.getOrganismAt(new Location(row, col));
-                if(animal != null) {
-                    stats.incrementCount(animal.getClass());
-                    fieldView.drawMark(col, row, getColor(animal.getClass()));
-                }
-                else {
-                    fieldView.drawMark(col, row, EMPTY_COLOR);
-                }
-            }
+        FieldSnapshot snapshot = FieldSnapshot.of(step, field, unused);
+        unused = pending.getAndSet(snapshot);
+        if(unused != null) {
+            // The renderer never saw the previous snapshot.
+            droppedFrames++;
         }
-        stats.countFinished();
+        LockSupport.unpark(renderer);
+    }
+
+    /**
+     * @return The number of steps that were not drawn because a later
+     *         one was ready before the renderer got to them.
+     */
+    public long getDroppedFrames()
+    {
+        return droppedFrames;
+    }
 
-        population.setText(POPULATION_PREFIX + stats.getPopulationDetails(field));
-        fieldView.repaint();
+    /**
+     * @return The step of the latest snapshot that has been drawn and
+     *         shown, or -1 if none has been yet.
+     */
+    public int getDrawnStep()
+    {
+        return drawnStep;
     }
 
     /**
@@ -132,24 +165,89 @@ public class SimulatorView extends JFrame
     {
         return stats.isViable(field);
     }
-    
+
+    /**
+     * Release the window and stop the renderer.
+     */
+    @Override
+    public void dispose()
+    {
+        renderer.interrupt();
+        super.dispose();
+    }
+
+    /**
+     * Draw snapshots as they arrive, always taking the latest one.
+     * This is the body of the renderer thread.
+     */
+    private void render()
+    {
+        try {
+            while(true) {
+                FieldSnapshot snapshot;
+                while((snapshot = pending.getAndSet(null)) == null) {
+                    LockSupport.park(this);
+                    if(Thread.interrupted()) {
+                        return;
+                    }
+                }
+                fieldView.draw(snapshot);
+                int step = snapshot.getStep();
+                String details = stats.getPopulationDetails(snapshot::getCount);
+                SwingUtilities.invokeAndWait(() -> {
+                    if(!isVisible()) {
+                        setVisible(true);
+                    }
+                    stepLabel.setText(STEP_PREFIX + step);
+                    population.setText(POPULATION_PREFIX + details);
+                    fieldView.showDrawing();
+                });
+                drawnStep = step;
+            }
+        }
+        catch(InterruptedException e) {
+            // The view has been disposed of.
+        }
+        catch(InvocationTargetException e) {
+            throw new IllegalStateException("Could not update the view", e.getCause());
+        }
+    }
+
     /**
-     * Provide a graphical view of a rectangular field. This is 
+     * Provide a graphical view of a rectangular field. This is
      * a nested class (a class defined inside a class) which
      * defines a custom component for the user interface. This
      * component displays the field.
-     * This is rather advanced GUI stuff - you can ignore this 
+     * This is rather advanced GUI stuff - you can ignore this
      * for your project if you like.
+     *
+     * The renderer draws into one image while the event dispatch
+     * thread paints the other, and the two are swapped on the event
+     * dispatch thread once a drawing is complete. Each image remembers
+     * the snapshot it shows, so only the cells that have changed since
+     * are redrawn, by writing their pixels straight into the image's
+     * raster. Likewise, only the parts of the component that have
+     * changed are repainted.
      */
     private class FieldView extends JPanel
     {
         private final int GRID_VIEW_SCALING_FACTOR = 6;
+        // The number of grid rows in each band tracked for repainting.
+        private static final int BAND_HEIGHT = 16;
 
         private final int gridWidth, gridHeight;
         private int xScale, yScale;
-        Dimension size;
-        private Graphics g;
-        private Image fieldImage;
+        // The size of the component when the last drawing was shown.
+        private volatile Dimension size;
+        // The image being painted, only used on the event dispatch thread.
+        private transient Drawing shown;
+        // The image being drawn, only used by the renderer.
+        private transient Drawing drawn;
+        // For each band of rows, the first and last columns that differ
+        // between the drawn image and the shown one, or -1 if none do.
+        private final int[] dirtyFrom, dirtyTo;
+        // Whether the whole component needs repainting.
+        private boolean allDirty;
 
         /**
          * Create a new FieldView component.
@@ -158,7 +256,10 @@ public class SimulatorView extends JFrame
         {
             gridHeight = height;
             gridWidth = width;
-            size = new Dimension(0, 0);
+            size = getPreferredSize();
+            int bands = (height + BAND_HEIGHT - 1) / BAND_HEIGHT;
+            dirtyFrom = new int[bands];
+            dirtyTo = new int[bands];
         }
 
         /**
@@ -171,34 +272,145 @@ public class SimulatorView extends JFrame
         }
 
         /**
-         * Prepare for a new round of painting. Since the component
-         * may be resized, compute the scaling factor again.
+         * Prepare an image to draw on. Since the component may have
+         * been resized, compute the scaling factor again. A new image
+         * is needed if the size has changed.
+         * Called by the renderer.
          */
-        public void preparePaint()
+        private void prepareImage()
         {
-            if(! size.equals(getSize())) {  // if the size has changed...
-                size = getSize();
-                fieldImage = fieldView.createImage(size.width, size.height);
-                g = fieldImage.getGraphics();
-
-                xScale = size.width / gridWidth;
-                if(xScale < 1) {
-                    xScale = GRID_VIEW_SCALING_FACTOR;
+            Dimension currentSize = size;
+            if(drawn == null || drawn.image.getWidth() != currentSize.width
+                             || drawn.image.getHeight() != currentSize.height) {
+                drawn = new Drawing(currentSize.width, currentSize.height);
+            }
+            xScale = currentSize.width / gridWidth;
+            if(xScale < 1) {
+                xScale = GRID_VIEW_SCALING_FACTOR;
+            }
+            yScale = currentSize.height / gridHeight;
+            if(yScale < 1) {
+                yScale = GRID_VIEW_SCALING_FACTOR;
+            }
+        }
+
+        /**
+         * Draw a snapshot of the field, redrawing only the cells that
+         * differ from the snapshot the image showed before, and note
+         * which parts differ from the image on screen.
+         * Called by the renderer.
+         * @param snapshot The state to draw.
+         */
+        public void draw(FieldSnapshot snapshot)
+        {
+            prepareImage();
+            int[] rgb = new int[Species.values().length + 1];
+            rgb[0] = EMPTY_COLOR.getRGB();
+            for(Species species : Species.values()) {
+                rgb[species.ordinal() + 1] = getColor(species).getRGB();
+            }
+
+            FieldSnapshot previous = drawn.snapshot;
+            if(previous == null || drawn.xScale != xScale || drawn.yScale != yScale
+                                || !Arrays.equals(drawn.rgb, rgb)) {
+                for(int cell = 0; cell < gridWidth * gridHeight; cell++) {
+                    drawMark(cell, rgb[snapshot.getIdAt(cell)]);
+                }
+            }
+            else {
+                for(int cell = snapshot.nextDifference(previous, 0); cell >= 0;
+                        cell = snapshot.nextDifference(previous, cell + 1)) {
+                    drawMark(cell, rgb[snapshot.getIdAt(cell)]);
                 }
-                yScale = size.height / gridHeight;
-                if(yScale < 1) {
-                    yScale = GRID_VIEW_SCALING_FACTOR;
+            }
+            drawn.snapshot = snapshot;
+            drawn.xScale = xScale;
+            drawn.yScale = yScale;
+            drawn.rgb = rgb;
+            findDirtyBands(snapshot);
+        }
+
+        /**
+         * Note which bands of rows differ between the snapshot just
+         * drawn and the one on screen.
+         * @param snapshot The snapshot just drawn.
+         */
+        private void findDirtyBands(FieldSnapshot snapshot)
+        {
+            Arrays.fill(dirtyFrom, -1);
+            Arrays.fill(dirtyTo, -1);
+            // The shown drawing is only changed by showDrawing, while
+            // the renderer waits, so it is safe to look at here.
+            Drawing onScreen = shown;
+            allDirty = onScreen == null || onScreen.image.getWidth() != drawn.image.getWidth()
+                           || onScreen.image.getHeight() != drawn.image.getHeight()
+                           || onScreen.xScale != xScale || onScreen.yScale != yScale
+                           || !Arrays.equals(onScreen.rgb, drawn.rgb);
+            if(!allDirty) {
+                for(int cell = snapshot.nextDifference(onScreen.snapshot, 0); cell >= 0;
+                        cell = snapshot.nextDifference(onScreen.snapshot, cell + 1)) {
+                    int band = cell / gridWidth / BAND_HEIGHT;
+                    int col = cell % gridWidth;
+                    if(dirtyFrom[band] < 0 || col < dirtyFrom[band]) {
+                        dirtyFrom[band] = col;
+                    }
+                    if(col > dirtyTo[band]) {
+                        dirtyTo[band] = col;
+                    }
                 }
             }
         }
-        
+
         /**
-         * Paint on grid location on this field in a given color.
+         * Paint one grid cell of the drawn image in a given color,
+         * writing its pixels directly. Pixels beyond the edge of the
+         * image are left out.
+         * @param cell The row-major index of the cell.
+         * @param rgb The color, as packed RGB.
          */
-        public void drawMark(int x, int y, Color color)
+        private void drawMark(int cell, int rgb)
         {
-            g.setColor(color);
-            g.fillRect(x * xScale, y * yScale, xScale-1, yScale-1);
+            int imageWidth = drawn.image.getWidth();
+            int imageHeight = drawn.image.getHeight();
+            int left = (cell % gridWidth) * xScale;
+            int top = (cell / gridWidth) * yScale;
+            int right = Math.min(left + xScale - 1, imageWidth);
+            int bottom = Math.min(top + yScale - 1, imageHeight);
+            for(int y = top; y < bottom; y++) {
+                if(left < right) {
+                    Arrays.fill(drawn.pixels, y * imageWidth + left, y * imageWidth + right, rgb);
+                }
+            }
+        }
+
+        /**
+         * Show the image the renderer has finished drawing, and give
+         * it the other one to draw next. Only the parts that have
+         * changed are repainted. Called on the event dispatch thread,
+         * while the renderer waits.
+         */
+        public void showDrawing()
+        {
+            Drawing drawing = shown;
+            shown = drawn;
+            drawn = drawing;
+            Dimension currentSize = getSize();
+            if(allDirty || shown.image.getWidth() != currentSize.width
+                        || shown.image.getHeight() != currentSize.height) {
+                repaint();
+            }
+            else {
+                for(int band = 0; band < dirtyFrom.length; band++) {
+                    if(dirtyFrom[band] >= 0) {
+                        int rows = Math.min(BAND_HEIGHT, gridHeight - band * BAND_HEIGHT);
+                        repaint(dirtyFrom[band] * xScale, band * BAND_HEIGHT * yScale,
+                                (dirtyTo[band] - dirtyFrom[band] + 1) * xScale, rows * yScale);
+                    }
+                }
+            }
+            if(currentSize.width > 0 && currentSize.height > 0) {
+                size = currentSize;
+            }
         }
 
         /**
@@ -207,9 +419,11 @@ public class SimulatorView extends JFrame
          */
         public void paintComponent(Graphics g)
         {
-            if(fieldImage != null) {
+            if(shown != null) {
+                BufferedImage fieldImage = shown.image;
                 Dimension currentSize = getSize();
-                if(size.equals(currentSize)) {
+                if(fieldImage.getWidth() == currentSize.width
+                       && fieldImage.getHeight() == currentSize.height) {
                     g.drawImage(fieldImage, 0, 0, null);
                 }
                 else {
@@ -219,4 +433,31 @@ public class SimulatorView extends JFrame
             }
         }
     }
+
+    /**
+     * An image of the field, backed by an int array of RGB pixels,
+     * together with what it shows.
+     */
+    private static class Drawing
+    {
+        private final BufferedImage image;
+        // The pixels of the image, row by row.
+        private final int[] pixels;
+        // The snapshot the image shows, or null if nothing is drawn yet.
+        private FieldSnapshot snapshot;
+        // The scale and colors the snapshot was drawn with.
+        private int xScale, yScale;
+        private int[] rgb;
+
+        /**
+         * Create a blank image.
+         * @param width The width of the image in pixels.
+         * @param height The height of the image in pixels.
+         */
+        Drawing(int width, int height)
+        {
+            image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        }
+    }
 }
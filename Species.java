@@ -0,0 +1,196 @@
+/**
+ * The species of the forest, with the life-history parameters of each.
+ * The parameters are taken from the constants of the organism classes,
+ * and are the defaults of Parameters. Organism.act applies the rules of
+ * each kind of species, and ArrayEngine applies the same rules to
+ * species ids rather than to objects. Who eats whom is held as a matrix
+ * of bit masks, so that a field can find food by testing the species
+ * of the neighbouring cells against a mask.
+ * The species are declared in the order in which Simulator tries them
+ * when populating a cell.
+ *
+ * @author David J. Barnes and Michael Kölling
+ * @version 7.1
+ */
+public enum Species
+{
+    // A wolf's food level ends up at DEER_FOOD_VALUE both when it is
+    // created and when it eats.
+    WOLF(Kind.PREDATOR, Simulator.WOLF_CREATION_PROBABILITY, Wolf.BREEDING_AGE, Wolf.MAX_AGE,
+         Wolf.BREEDING_PROBABILITY, Wolf.MAX_LITTER_SIZE, Wolf.DEER_FOOD_VALUE),
+    HARE(Kind.PREY, Simulator.HARE_CREATION_PROBABILITY, Hare.BREEDING_AGE, Hare.MAX_AGE,
+         Hare.BREEDING_PROBABILITY, Hare.MAX_LITTER_SIZE, Hare.BERRY_FOOD_VALUE),
+    DEER(Kind.PREY, Simulator.DEER_CREATION_PROBABILITY, Deer.BREEDING_AGE, Deer.MAX_AGE,
+         Deer.BREEDING_PROBABILITY, Deer.MAX_LITTER_SIZE, 0),
+    BEAR(Kind.PREDATOR, Simulator.BEAR_CREATION_PROBABILITY, Bear.BREEDING_AGE, Bear.MAX_AGE,
+         Bear.BREEDING_PROBABILITY, Bear.MAX_LITTER_SIZE, Bear.HARE_FOOD_VALUE),
+    OWL(Kind.PREDATOR, Simulator.OWL_CREATION_PROBABILITY, Owl.BREEDING_AGE, Owl.MAX_AGE,
+        Owl.BREEDING_PROBABILITY, Owl.MAX_LITTER_SIZE, Owl.HARE_FOOD_VALUE),
+    // A plant always spreads a single seedling of random age.
+    BERRY(Kind.PLANT, Simulator.BERRY_CREATION_PROBABILITY, 0, Berry.MAX_AGE, 1.0, 1, 0),
+    ACORN(Kind.PLANT, Simulator.ACORN_CREATION_PROBABILITY, 0, Acorn.MAX_AGE, 1.0, 1, 0);
+
+    /**
+     * How a species behaves when it acts.
+     */
+    public enum Kind
+    {
+        // Hunts live prey, and starves if it does not eat.
+        PREDATOR,
+        // Moves and breeds, but never goes hungry.
+        PREY,
+        // Spreads into free cells, and dies if an eater is adjacent.
+        PLANT
+    }
+
+    // The diet matrix as bit masks, indexed by ordinal: the animals each
+    // predator hunts, and the species that eat each species.
+    // Bit i of a mask stands for the species of ordinal i.
+    private static final int[] PREY = new int[values().length];
+    private static final int[] EATERS = new int[values().length];
+
+    static {
+        for(Species eater : values()) {
+            for(Species food : values()) {
+                if(feedsOn(eater, food)) {
+                    EATERS[food.ordinal()] |= eater.bit();
+                    if(eater.kind == Kind.PREDATOR && food.kind != Kind.PLANT) {
+                        PREY[eater.ordinal()] |= food.bit();
+                    }
+                }
+            }
+        }
+    }
+
+    private final Kind kind;
+    private final double creationProbability;
+    private final int breedingAge;
+    private final int maxAge;
+    private final double breedingProbability;
+    private final int maxLitterSize;
+    private final int foodValue;
+
+    /**
+     * Describe a species.
+     * @param kind How the species behaves.
+     * @param creationProbability The chance of a cell being populated with it.
+     * @param breedingAge The age at which it can start to breed.
+     * @param maxAge The age to which it can live.
+     * @param breedingProbability The likelihood of it breeding.
+     * @param maxLitterSize The maximum number of births.
+     * @param foodValue The food level reached by eating.
+     */
+    Species(Kind kind, double creationProbability, int breedingAge, int maxAge,
+            double breedingProbability, int maxLitterSize, int foodValue)
+    {
+        this.kind = kind;
+        this.creationProbability = creationProbability;
+        this.breedingAge = breedingAge;
+        this.maxAge = maxAge;
+        this.breedingProbability = breedingProbability;
+        this.maxLitterSize = maxLitterSize;
+        this.foodValue = foodValue;
+    }
+
+    /**
+     * @return The bit standing for this species in the masks of the
+     *         diet matrix: bit i for the species of ordinal i.
+     */
+    public int bit()
+    {
+        return 1 << ordinal();
+    }
+
+    /**
+     * @return The mask of the animals this species hunts; none unless
+     *         it is a predator.
+     */
+    public int preyMask()
+    {
+        return PREY[ordinal()];
+    }
+
+    /**
+     * @return The mask of the species that eat this species.
+     */
+    public int eaterMask()
+    {
+        return EATERS[ordinal()];
+    }
+
+    /**
+     * @return How the species behaves.
+     */
+    public Kind kind()
+    {
+        return kind;
+    }
+
+    /**
+     * @return The chance of a cell being populated with this species.
+     */
+    public double creationProbability()
+    {
+        return creationProbability;
+    }
+
+    /**
+     * @return The age at which the species can start to breed.
+     */
+    public int breedingAge()
+    {
+        return breedingAge;
+    }
+
+    /**
+     * @return The age to which the species can live.
+     */
+    public int maxAge()
+    {
+        return maxAge;
+    }
+
+    /**
+     * @return The likelihood of the species breeding.
+     */
+    public double breedingProbability()
+    {
+        return breedingProbability;
+    }
+
+    /**
+     * @return The maximum number of births.
+     */
+    public int maxLitterSize()
+    {
+        return maxLitterSize;
+    }
+
+    /**
+     * @return The food level reached by eating, or zero if the species
+     * has no food level.
+     */
+    public int foodValue()
+    {
+        return foodValue;
+    }
+
+    /**
+     * Declare who eats whom, from which the diet matrix is built.
+     * Predators only hunt hares. Hares and bears eat berries,
+     * and deer eat acorns.
+     * @param eater The species that may eat.
+     * @param food The possible food.
+     * @return true if the eater eats the food.
+     */
+    private static boolean feedsOn(Species eater, Species food)
+    {
+        return switch(eater) {
+            case WOLF, OWL -> food == HARE;
+            case BEAR -> food == HARE || food == BERRY;
+            case HARE -> food == BERRY;
+            case DEER -> food == ACORN;
+            case BERRY, ACORN -> false;
+        };
+    }
+}
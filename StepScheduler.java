@@ -0,0 +1,173 @@
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Control how fast a simulation runs, and measure how fast it actually ran.
+ * There are three modes:
+ * <ul>
+ * <li>as fast as possible: steps follow each other without pause;</li>
+ * <li>fixed rate: steps are paced to a target rate and every step is shown;
+ *     if a step takes too long, the next one starts at once;</li>
+ * <li>real time: steps are paced to a target rate, but a step that finishes
+ *     after its due time is not shown, so that a slow display cannot hold
+ *     the simulation back. If the simulation falls too far behind to catch
+ *     up, it shows the next step and carries on from there.</li>
+ * </ul>
+ *
+ * @author David J. Barnes and Michael Kölling
+ * @version 7.1
+ */
+public class StepScheduler
+{
+    /**
+     * The ways in which steps can be paced.
+     */
+    public enum Mode
+    {
+        AS_FAST_AS_POSSIBLE, FIXED_RATE, REAL_TIME
+    }
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+    // How far a real-time run may fall behind before it stops catching up.
+    private static final long MAX_LAG = NANOS_PER_SECOND / 4;
+
+    private final Mode mode;
+    // The time allowed for each step, in nanoseconds (zero if unpaced).
+    private final long period;
+    // When the current run started.
+    private long startTime;
+    // When the step in progress is due to finish.
+    private long deadline;
+    // The number of steps completed in the current run.
+    private long steps;
+    // The number of steps completed that were not shown.
+    private long droppedFrames;
+    // When the last step of the current run finished.
+    private long endTime;
+
+    /**
+     * Create a scheduler.
+     * @param mode How steps are to be paced.
+     * @param stepsPerSecond The target rate. Ignored when running as fast
+     *                       as possible; otherwise must be greater than zero.
+     */
+    public StepScheduler(Mode mode, double stepsPerSecond)
+    {
+        if(mode != Mode.AS_FAST_AS_POSSIBLE && !(stepsPerSecond > 0)) {
+            throw new IllegalArgumentException("The target rate must be > 0: " + stepsPerSecond);
+        }
+        this.mode = mode;
+        this.period = mode == Mode.AS_FAST_AS_POSSIBLE ? 0 : Math.round(NANOS_PER_SECOND / stepsPerSecond);
+    }
+
+    /**
+     * @return A scheduler that runs steps without any pause.
+     */
+    public static StepScheduler asFastAsPossible()
+    {
+        return new StepScheduler(Mode.AS_FAST_AS_POSSIBLE, 0);
+    }
+
+    /**
+     * @param stepsPerSecond The target rate.
+     * @return A scheduler that paces steps and shows every one of them.
+     */
+    public static StepScheduler fixedRate(double stepsPerSecond)
+    {
+        return new StepScheduler(Mode.FIXED_RATE, stepsPerSecond);
+    }
+
+    /**
+     * @param stepsPerSecond The target rate.
+     * @return A scheduler that paces steps and skips showing late ones.
+     */
+    public static StepScheduler realTime(double stepsPerSecond)
+    {
+        return new StepScheduler(Mode.REAL_TIME, stepsPerSecond);
+    }
+
+    /**
+     * Start timing a new run.
+     */
+    public void start()
+    {
+        startTime = System.nanoTime();
+        deadline = startTime;
+        endTime = startTime;
+        steps = 0;
+        droppedFrames = 0;
+    }
+
+    /**
+     * Record that a step has been computed, and decide whether it should
+     * be shown.
+     * @return true if the step is to be shown.
+     */
+    public boolean stepComputed()
+    {
+        steps++;
+        deadline += period;
+        if(mode == Mode.REAL_TIME) {
+            long now = System.nanoTime();
+            if(now - deadline > MAX_LAG) {
+                // Too far behind to catch up: carry on from here.
+                deadline = now;
+            }
+            else if(now > deadline) {
+                droppedFrames++;
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Wait, if necessary, until the step in progress is due to finish.
+     */
+    public void awaitNextStep()
+    {
+        if(mode != Mode.AS_FAST_AS_POSSIBLE) {
+            long remaining;
+            while((remaining = deadline - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(remaining);
+            }
+            if(mode == Mode.FIXED_RATE) {
+                // Do not try to catch up after a slow step.
+                deadline = Math.max(deadline, System.nanoTime());
+            }
+        }
+        endTime = System.nanoTime();
+    }
+
+    /**
+     * @return How steps are paced.
+     */
+    public Mode getMode()
+    {
+        return mode;
+    }
+
+    /**
+     * @return The number of steps completed in the current run.
+     */
+    public long getSteps()
+    {
+        return steps;
+    }
+
+    /**
+     * @return The number of steps of the current run that were not shown.
+     */
+    public long getDroppedFrames()
+    {
+        return droppedFrames;
+    }
+
+    /**
+     * @return The number of steps per second achieved in the current run.
+     */
+    public double getAchievedRate()
+    {
+        long elapsed = endTime - startTime;
+        return elapsed > 0 ? steps * (double) NANOS_PER_SECOND / elapsed : 0;
+    }
+}
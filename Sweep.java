@@ -0,0 +1,359 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Run many independent, headless simulations at once, one for every
+ * combination of a grid of parameter values and a set of seeds, and
+ * collect the results in one file.
+ *
+ * For example, to try three maximum ages for wolves against two hare
+ * litter sizes, five times each, on every core:
+ * <pre>
+ *     Sweep sweep = new Sweep(80, 120, 1000);
+ *     sweep.addAxis(Species.WOLF, Parameters.Trait.MAX_AGE, 8, 10, 12);
+ *     sweep.addAxis(Species.HARE, Parameters.Trait.MAX_LITTER_SIZE, 4, 8);
+ *     sweep.setSeeds(1, 2, 3, 4, 5);
+ *     sweep.run(Path.of("sweep.csv"), Runtime.getRuntime().availableProcessors());
+ * </pre>
+ *
+ * Each run draws its random numbers from its own RandomStream, seeded
+ * with the run's seed, so a run gives the same results whichever thread
+ * it runs on and whatever else runs at the same time.
+ *
+ * The results are written as CSV, in the order of the runs: the first
+ * axis changes slowest and the seed fastest. There is one line for each
+ * step of each run, including step 0, holding
+ * <ul>
+ * <li>the number of the run and its seed;</li>
+ * <li>the value on each axis, in a column named after the species and
+ *     trait, such as "wolf.max_age";</li>
+ * <li>the survival of the run: the number of steps after which the
+ *     population was no longer viable, or the step limit if it stayed
+ *     viable, and whether it became extinct (1) or not (0);</li>
+ * <li>the step and the number of live organisms of each species.</li>
+ * </ul>
+ *
+ * @author David J. Barnes and Michael Kölling
+ * @version 7.1
+ */
+public class Sweep
+{
+    private static final Species[] SPECIES = Species.values();
+    // The number of runs started, per thread, ahead of the one being
+    // written. It bounds the results held waiting to be written.
+    private static final int RUNS_AHEAD = 4;
+    // The largest number of counts a run can record: the largest
+    // length the JVM reliably allows for an array.
+    private static final long MAX_COUNTS = Integer.MAX_VALUE - 8;
+    // The number of steps a run makes room for at first.
+    private static final int INITIAL_STEPS = 256;
+
+    private final int depth, width;
+    private final int maxSteps;
+    // The parameters that are not varied.
+    private Parameters base = Parameters.DEFAULT;
+    // The condition for a run to carry on.
+    private Viability viability = Viability.HARES_AND_WOLVES;
+    // The parameters varied, and the values each takes.
+    private final List<Axis> axes = new ArrayList<>();
+    // The seed of each repetition of a combination of values.
+    private long[] seeds = { 1111 };
+
+    /**
+     * Set up a sweep over fields of the given size.
+     * @param depth The depth of each field.
+     * @param width The width of each field.
+     * @param maxSteps The number of steps after which a run stops, if
+     *                 its population is still viable. The counts of
+     *                 every step must fit in one array.
+     */
+    public Sweep(int depth, int width, int maxSteps)
+    {
+        if(depth <= 0 || width <= 0 || maxSteps < 0
+           || (maxSteps + 1L) * SPECIES.length > MAX_COUNTS) {
+            throw new IllegalArgumentException("Invalid sweep: " + depth + "x" + width
+                                               + " for " + maxSteps + " steps");
+        }
+        this.depth = depth;
+        this.width = width;
+        this.maxSteps = maxSteps;
+    }
+
+    /**
+     * Vary a parameter over the given values. Every combination of the
+     * values of all the axes is run.
+     * @param species The species whose trait is varied.
+     * @param trait The trait to vary.
+     * @param values The values it takes.
+     */
+    public void addAxis(Species species, Parameters.Trait trait, double... values)
+    {
+        if(values.length == 0) {
+            throw new IllegalArgumentException("An axis needs at least one value");
+        }
+        for(double value : values) {
+            // Reject invalid values now rather than part way through.
+            base.with(species, trait, value);
+        }
+        axes.add(new Axis(species, trait, values.clone()));
+    }
+
+    /**
+     * Set the seeds with which every combination of values is run.
+     * By default, each is run once, with the randomizer's usual seed.
+     * @param seeds The seeds.
+     */
+    public void setSeeds(long... seeds)
+    {
+        if(seeds.length == 0) {
+            throw new IllegalArgumentException("A sweep needs at least one seed");
+        }
+        this.seeds = seeds.clone();
+    }
+
+    /**
+     * Set the parameters used where no axis varies them.
+     * @param base The parameters.
+     */
+    public void setParameters(Parameters base)
+    {
+        this.base = base;
+    }
+
+    /**
+     * Choose the condition the population must meet for a run to carry
+     * on. By default, a run stops once the hares or the wolves have died out.
+     * @param viability The condition to use.
+     */
+    public void setViability(Viability viability)
+    {
+        this.viability = viability;
+    }
+
+    /**
+     * @return The number of runs in the sweep.
+     */
+    public int getRunCount()
+    {
+        int runs = seeds.length;
+        for(Axis axis : axes) {
+            runs *= axis.values.length;
+        }
+        return runs;
+    }
+
+    /**
+     * Run every simulation of the sweep and write the results.
+     * @param results The file to write, replacing any existing contents.
+     * @param threads The number of simulations to run at once.
+     * @throws IOException If the results cannot be written.
+     * @throws InterruptedException If interrupted while waiting for a run.
+     */
+    public void run(Path results, int threads) throws IOException, InterruptedException
+    {
+        if(threads <= 0) {
+            throw new IllegalArgumentException("The number of threads must be > 0: " + threads);
+        }
+        ExecutorService pool = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            private int next;
+
+            @Override
+            public Thread newThread(Runnable task)
+            {
+                Thread thread = new Thread(task, "Sweep runner " + next++);
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        CompletionService<Run> completed = new ExecutorCompletionService<>(pool);
+        try(BufferedWriter out = Files.newBufferedWriter(results, StandardCharsets.US_ASCII)) {
+            writeHeader(out);
+            int runs = getRunCount();
+            long ahead = (long) threads * RUNS_AHEAD;
+            int started = 0;
+            while(started < runs && started < ahead) {
+                submit(completed, started++);
+            }
+            // Runs finish in any order; each is held until those before
+            // it have been written. A run is only started once it is
+            // within 'ahead' of the next one to be written, so a slow
+            // run cannot leave the others piling up behind it.
+            Map<Integer, Run> waiting = new HashMap<>();
+            for(int written = 0; written < runs; ) {
+                Run run = completed.take().get();
+                waiting.put(run.index, run);
+                while((run = waiting.remove(written)) != null) {
+                    write(out, run);
+                    written++;
+                }
+                while(started < runs && started < written + ahead) {
+                    submit(completed, started++);
+                }
+            }
+        }
+        catch(ExecutionException e) {
+            throw new IllegalStateException("A run of the sweep failed", e.getCause());
+        }
+        finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Start a run.
+     * @param completed The service to run it on.
+     * @param index The number of the run.
+     */
+    private void submit(CompletionService<Run> completed, int index)
+    {
+        double[] values = new double[axes.size()];
+        Parameters parameters = base;
+        // The seed changes fastest, then the last axis, and so on.
+        int rest = index / seeds.length;
+        for(int i = axes.size() - 1; i >= 0; i--) {
+            Axis axis = axes.get(i);
+            values[i] = axis.values[rest % axis.values.length];
+            rest /= axis.values.length;
+            parameters = parameters.with(axis.species, axis.trait, values[i]);
+        }
+        long seed = seeds[index % seeds.length];
+        Parameters runParameters = parameters;
+        completed.submit(() -> simulate(index, seed, values, runParameters));
+    }
+
+    /**
+     * Run one simulation until its population is no longer viable or
+     * the step limit is reached.
+     * @param index The number of the run.
+     * @param seed The seed of the run.
+     * @param values The value of each axis.
+     * @param parameters The parameters of the run.
+     * @return The results of the run.
+     */
+    private Run simulate(int index, long seed, double[] values, Parameters parameters)
+    {
+        RandomStream previous = Randomizer.useStream(new RandomStream(seed));
+        try {
+            Simulator simulator = new Simulator(depth, width, false, parameters);
+            int[] counts = new int[(Math.min(maxSteps, INITIAL_STEPS) + 1) * SPECIES.length];
+            int steps = 0;
+            record(simulator.getField(), counts, 0);
+            while(steps < maxSteps && simulator.getField().isViable(viability)) {
+                simulator.simulateOneStep();
+                steps++;
+                if((steps + 1) * SPECIES.length > counts.length) {
+                    // The constructor checked that maxSteps fits.
+                    long room = Math.min((long) steps * 2, maxSteps) + 1;
+                    counts = Arrays.copyOf(counts, (int) (room * SPECIES.length));
+                }
+                record(simulator.getField(), counts, steps);
+            }
+            boolean extinct = !simulator.getField().isViable(viability);
+            return new Run(index, seed, values, steps, extinct,
+                           Arrays.copyOf(counts, (steps + 1) * SPECIES.length));
+        }
+        finally {
+            Randomizer.useStream(previous);
+        }
+    }
+
+    /**
+     * Copy the live counts of a field.
+     * @param field The field.
+     * @param counts The counts of every step so far.
+     * @param step The step whose counts are copied.
+     */
+    private static void record(Field field, int[] counts, int step)
+    {
+        for(Species species : SPECIES) {
+            counts[step * SPECIES.length + species.ordinal()] = field.getCount(species);
+        }
+    }
+
+    /**
+     * Write the names of the columns.
+     * @param out Where to write them.
+     * @throws IOException If they cannot be written.
+     */
+    private void writeHeader(BufferedWriter out) throws IOException
+    {
+        out.write("run,seed");
+        for(Axis axis : axes) {
+            out.write(',' + axis.species.name().toLowerCase() + '.' + axis.trait.label());
+        }
+        out.write(",survival,extinct,step");
+        for(Species species : SPECIES) {
+            out.write(',' + species.name().toLowerCase());
+        }
+        out.newLine();
+    }
+
+    /**
+     * Write the lines of one run.
+     * @param out Where to write them.
+     * @param run The results of the run.
+     * @throws IOException If they cannot be written.
+     */
+    private void write(BufferedWriter out, Run run) throws IOException
+    {
+        StringBuilder prefix = new StringBuilder();
+        prefix.append(run.index).append(',').append(run.seed);
+        for(int i = 0; i < axes.size(); i++) {
+            double value = run.values[i];
+            prefix.append(',');
+            if(axes.get(i).trait.isInteger()) {
+                prefix.append((long) value);
+            }
+            else {
+                prefix.append(value);
+            }
+        }
+        prefix.append(',').append(run.survival).append(',').append(run.extinct ? 1 : 0).append(',');
+        StringBuilder line = new StringBuilder();
+        for(int step = 0; step <= run.survival; step++) {
+            line.setLength(0);
+            line.append(prefix).append(step);
+            for(int i = 0; i < SPECIES.length; i++) {
+                line.append(',').append(run.counts[step * SPECIES.length + i]);
+            }
+            out.write(line.toString());
+            out.newLine();
+        }
+    }
+
+    /**
+     * A parameter varied by the sweep, and the values it takes.
+     */
+    private record Axis(Species species, Parameters.Trait trait, double[] values)
+    {
+    }
+
+    /**
+     * The results of one run.
+     * @param index The number of the run.
+     * @param seed Its seed.
+     * @param values The value of each axis.
+     * @param survival The number of steps run.
+     * @param extinct Whether it stopped because its population was no
+     *                longer viable.
+     * @param counts The live count of each species at every step.
+     */
+    private record Run(int index, long seed, double[] values, int survival, boolean extinct,
+                       int[] counts)
+    {
+    }
+}
@@ -0,0 +1,86 @@
+import java.util.function.ToIntFunction;
+
+/**
+ * A condition that the population of a field must meet for a simulation
+ * to carry on. It is decided from the number of live organisms of each
+ * species alone, which the field keeps up to date, so it is checked in
+ * constant time whatever the size of the field.
+ *
+ * For example, a run can be kept going while any predator and any prey
+ * survive with
+ * <pre>
+ *     Viability.anyOf(Species.Kind.PREDATOR).and(Viability.anyOf(Species.Kind.PREY))
+ * </pre>
+ *
+ * @author David J. Barnes and Michael Kölling
+ * @version 7.1
+ */
+@FunctionalInterface
+public interface Viability
+{
+    // The original rule: at least one hare and one wolf must be alive.
+    Viability HARES_AND_WOLVES = allOf(Species.HARE, Species.WOLF);
+
+    /**
+     * Decide whether a population is viable.
+     * @param counts The number of live organisms of each species.
+     * @return true if the simulation should carry on.
+     */
+    boolean test(ToIntFunction<Species> counts);
+
+    /**
+     * Return a condition that holds only if both this one and another hold.
+     * @param other The other condition.
+     * @return The combined condition.
+     */
+    default Viability and(Viability other)
+    {
+        return counts -> test(counts) && other.test(counts);
+    }
+
+    /**
+     * Return a condition that holds if either this one or another holds.
+     * @param other The other condition.
+     * @return The combined condition.
+     */
+    default Viability or(Viability other)
+    {
+        return counts -> test(counts) || other.test(counts);
+    }
+
+    /**
+     * Return a condition requiring every one of the given species to be alive.
+     * @param species The species that must all survive.
+     * @return The condition.
+     */
+    static Viability allOf(Species... species)
+    {
+        Species[] required = species.clone();
+        return counts -> {
+            for(Species aSpecies : required) {
+                if(counts.applyAsInt(aSpecies) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        };
+    }
+
+    /**
+     * Return a condition requiring at least one species of a kind to be alive.
+     * @param kind The kind of species, such as predators.
+     * @return The condition.
+     */
+    static Viability anyOf(Species.Kind kind)
+    {
+        Species[] all = Species.values();
+        return counts -> {
+            for(Species aSpecies : all) {
+                if(aSpecies.kind() == kind && counts.applyAsInt(aSpecies) > 0) {
+                    return true;
+                }
+            }
+            return false;
+        };
+    }
+}
@@ -1,11 +1,9 @@
-import java.util.List;
-import java.util.Iterator;
 import java.util.Random;
 
 /**
  * A simple model of a Wolf.
  * Wolves age, move, eat, and die.
- * Predator - Eats {Hare, Deer}
+ * Predator - Eats {Hare}
  * 
  * @author David J. Barnes and Michael Kölling
  * @version 7.1
@@ -14,181 +12,61 @@ public class Wolf extends Organism
 {
     // Characteristics shared by all foxes (class variables).
     // The age at which a fox can start to breed.
-    private static final int BREEDING_AGE = 2;
+    static final int BREEDING_AGE = 2;
     // The age to which a fox can live.
-    private static final int MAX_AGE = 10;
+    static final int MAX_AGE = 10;
     // The likelihood of a fox breeding.
-    private static final double BREEDING_PROBABILITY = 0.4;
+    static final double BREEDING_PROBABILITY = 0.4;
     // The maximum number of births.
-    private static final int MAX_LITTER_SIZE = 5;
-    // The food value of a single rabbit. In effect, this is the
-    // number of steps a fox can go before it has to eat again.
-    private static final int HARE_FOOD_VALUE = 10;
-    private static final int DEER_FOOD_VALUE = 20;
-    // A shared random number generator to control breeding.
+    static final int MAX_LITTER_SIZE = 5;
+    // The food value of a meal. In effect, this is the number of
+    // steps a fox can go before it has to eat again.
+    static final int DEER_FOOD_VALUE = 20;
+    // A shared random number generator to set up new animals.
     private static final Random rand = Randomizer.getRandom();
-    
-    // Individual characteristics (instance fields).
-
-    // The fox's age.
-    private int age;
-    // The fox's food level, which is increased by eating rabbits.
-    private int foodLevel;
 
     /**
      * Create a fox. A fox can be created as a new born (age zero
      * and not hungry) or with a random age and food level.
+     * The default parameters of the species are used.
      * 
      * @param randomAge If true, the fox will have random age and hunger level.
      * @param location The location within the field.
      */
     public Wolf(boolean randomAge, Location location)
     {
-        super(location);
-        if(randomAge) {
-            age = rand.nextInt(MAX_AGE);
-        }
-        else {
-            age = 0;
-        }
-        foodLevel = rand.nextInt(HARE_FOOD_VALUE);
-        foodLevel = rand.nextInt(DEER_FOOD_VALUE);
+        this(randomAge, location, Parameters.DEFAULT);
     }
-    
+
     /**
-     * This is what the fox does most of the time: it hunts for
-     * rabbits. In the process, it might breed, die of hunger,
-     * or die of old age.
-     * @param currentField The field currently occupied.
-     * @param nextFieldState The updated field.
+     * Create a fox. A fox can be created as a new born (age zero
+     * and not hungry) or with a random age and food level.
+     * 
+     * @param randomAge If true, the fox will have random age and hunger level.
+     * @param location The location within the field.
+     * @param parameters The parameters of the species.
      */
-    public void act(Field currentField, Field nextFieldState)
+    public Wolf(boolean randomAge, Location location, Parameters parameters)
     {
-        incrementAge();
-        incrementHunger();
-        if(isAlive()) {
-            List<Location> freeLocations =
-                    nextFieldState.getFreeAdjacentLocations(getLocation());
-            if(! freeLocations.isEmpty()) {
-                giveBirth(nextFieldState, freeLocations);
-            }
-            // Move towards a source of food if found.
-            Location nextLocation = findFood(currentField);
-            if(nextLocation == null && ! freeLocations.isEmpty()) {
-                // No food found - try to move to a free location.
-                nextLocation = freeLocations.remove(0);
-            }
-            // See if it was possible to move.
-            if(nextLocation != null) {
-                setLocation(nextLocation);
-                nextFieldState.placeOrganism(this, nextLocation);
-            }
-            else {
-                // Overcrowding.
-                setDead();
-            }
+        super(Species.WOLF, location);
+        int age;
+        if(randomAge) {
+            age = rand.nextInt(parameters.maxAge(Species.WOLF));
         }
+        else {
+            age = 0;
+        }
+        int foodLevel = rand.nextInt(parameters.foodValue(Species.WOLF));
+        setState(age, foodLevel);
     }
 
     @Override
     public String toString() {
         return "Wolf{" +
-                "age=" + age +
+                "age=" + getAge() +
                 ", alive=" + isAlive() +
                 ", location=" + getLocation() +
-                ", foodLevel=" + foodLevel +
+                ", foodLevel=" + getFoodLevel() +
                 '}';
     }
-
-    /**
-     * Increase the age. This could result in the fox's death.
-     */
-    private void incrementAge()
-    {
-        age++;
-        if(age > MAX_AGE) {
-            setDead();
-        }
-    }
-    
-    /**
-     * Make this fox more hungry. This could result in the fox's death.
-     */
-    private void incrementHunger()
-    {
-        foodLevel--;
-        if(foodLevel <= 0) {
-            setDead();
-        }
-    }
-    
-    /**
-     * Look for rabbits adjacent to the current location.
-     * Only the first live rabbit is eaten.
-     * @param field The field currently occupied.
-     * @return Where food was found, or null if it wasn't.
-     */
-    private Location findFood(Field field)
-    {
-        List<Location> adjacent = field.getAdjacentLocations(getLocation());
-        Iterator<Location> it = adjacent.iterator();
-        Location foodLocation = null;
-        while(foodLocation == null && it.hasNext()) {
-            Location loc = it.next();
-            Organism organism = field.getOrganismAt(loc);
-            if(organism instanceof Hare hare) {
-                if(hare.isAlive()) {
-                    hare.setDead();
-                    foodLevel = HARE_FOOD_VALUE;
-                    foodLevel = DEER_FOOD_VALUE;
-                    foodLocation = loc;
-                }
-            }
-        }
-        return foodLocation;
-    }
-    
-    /**
-     * Check whether this fox is to give birth at this step.
-     * New births will be made into free adjacent locations.
-     * @param freeLocations The locations that are free in the current field.
-     */
-    private void giveBirth(Field nextFieldState, List<Location> freeLocations)
-    {
-        // New foxes are born into adjacent locations.
-        // Get a list of adjacent free locations.
-        int births = breed();
-        if(births > 0) {
-            for (int b = 0; b < births && ! freeLocations.isEmpty(); b++) {
-                Location loc = freeLocations.remove(0);
-                Wolf young = new Wolf(false, loc);
-                nextFieldState.placeOrganism(young, loc);
-            }
-        }
-    }
-        
-    /**
-     * Generate a number representing the number of births,
-     * if it can breed.
-     * @return The number of births (may be zero).
-     */
-    private int breed()
-    {
-        int births;
-        if(canBreed() && rand.nextDouble() <= BREEDING_PROBABILITY) {
-            births = rand.nextInt(MAX_LITTER_SIZE) + 1;
-        }
-        else {
-            births = 0;
-        }
-        return births;
-    }
-
-    /**
-     * A fox can breed if it has reached the breeding age.
-     */
-    private boolean canBreed()
-    {
-        return age >= BREEDING_AGE;
-    }
 }
@@ -0,0 +1,288 @@
+import java.util.List;
+import java.util.Random;
+
+import banff.benchmarks.Workload;
+
+/**
+ * The workloads timed by the benchmarks. Each factory method sets up a
+ * field of the given size, populated with the given density from the
+ * randomizer's fixed seed, and returns the work to be done on it.
+ *
+ * @author David J. Barnes and Michael Kölling
+ * @version 7.1
+ */
+public class Workloads
+{
+    // The number of locations a neighbour query cycles through.
+    private static final int QUERY_LOCATIONS = 1024;
+    // The number of organisms placed by one unit of placement work.
+    // PlacementBenchmark divides its timings by the same number.
+    private static final int PLACEMENTS = 1024;
+
+    /**
+     * @return One step of a simulation.
+     */
+    public static Workload step(int size, double density)
+    {
+        Simulator simulator = new Simulator(size, size, false);
+        return new Workload() {
+            @Override
+            public void reset()
+            {
+                Randomizer.reset();
+                simulator.reset(density);
+            }
+
+            @Override
+            public Object run()
+            {
+                simulator.simulateOneStep();
+                return simulator;
+            }
+        };
+    }
+
+    /**
+     * @return The population of a field.
+     */
+    public static Workload populate(int size, double density)
+    {
+        Simulator simulator = new Simulator(size, size, false);
+        return new Workload() {
+            @Override
+            public void reset()
+            {
+                Randomizer.reset();
+            }
+
+            @Override
+            public Object run()
+            {
+                simulator.reset(density);
+                return simulator;
+            }
+        };
+    }
+
+    /**
+     * @return A query for a list of the locations adjacent to a cell.
+     */
+    public static Workload adjacentLocations(int size, double density)
+    {
+        return new NeighbourQuery(size, density) {
+            @Override
+            Object query(Field field, Location location)
+            {
+                return field.getAdjacentLocations(location);
+            }
+        };
+    }
+
+    /**
+     * @return A query filling a cursor with the locations adjacent to a cell.
+     */
+    public static Workload adjacentCursor(int size, double density)
+    {
+        Neighbours cursor = new Neighbours();
+        return new NeighbourQuery(size, density) {
+            @Override
+            Object query(Field field, Location location)
+            {
+                return field.getAdjacentLocations(location, cursor).remaining();
+            }
+        };
+    }
+
+    /**
+     * @return A query for a list of the free locations adjacent to a cell.
+     */
+    public static Workload freeAdjacentLocations(int size, double density)
+    {
+        return new NeighbourQuery(size, density) {
+            @Override
+            Object query(Field field, Location location)
+            {
+                return field.getFreeAdjacentLocations(location);
+            }
+        };
+    }
+
+    /**
+     * @return A query filling a cursor with the free locations adjacent to a cell.
+     */
+    public static Workload freeAdjacentCursor(int size, double density)
+    {
+        Neighbours cursor = new Neighbours();
+        return new NeighbourQuery(size, density) {
+            @Override
+            Object query(Field field, Location location)
+            {
+                return field.getFreeAdjacentLocations(location, cursor).remaining();
+            }
+        };
+    }
+
+    /**
+     * @return The placement of PLACEMENTS organisms into an empty field,
+     *         which is then cleared.
+     */
+    public static Workload placeOrganism(int size, double density)
+    {
+        Simulator simulator = new Simulator(size, size, false);
+        Randomizer.reset();
+        simulator.reset(density);
+        List<Organism> population = simulator.getField().getOrganisms();
+        Organism[] organisms = new Organism[PLACEMENTS];
+        Location[] locations = new Location[PLACEMENTS];
+        Field field = new Field(simulator.getField());
+        Random rand = Randomizer.getRandom();
+        for(int i = 0; i < PLACEMENTS; i++) {
+            organisms[i] = population.get(rand.nextInt(population.size()));
+            locations[i] = field.getLocation(rand.nextInt(size), rand.nextInt(size));
+        }
+        return new Workload() {
+            @Override
+            public void reset()
+            {
+                field.clear();
+            }
+
+            @Override
+            public Object run()
+            {
+                for(int i = 0; i < PLACEMENTS; i++) {
+                    field.placeOrganism(organisms[i], locations[i]);
+                }
+                field.clear();
+                return field;
+            }
+        };
+    }
+
+    /**
+     * @return The display of a step by a view. This needs a display.
+     */
+    public static Workload showStatus(int size, double density)
+    {
+        Simulator simulator = new Simulator(size, size, false);
+        Randomizer.reset();
+        simulator.reset(density);
+        SimulatorView view = new SimulatorView(size, size);
+        return new Workload() {
+            // The step shown, so that every call shows a new one.
+            private int step;
+
+            @Override
+            public void reset()
+            {
+            }
+
+            @Override
+            public Object run()
+            {
+                view.showStatus(++step, simulator.getField());
+                return view;
+            }
+
+            @Override
+            public void close()
+            {
+                view.dispose();
+            }
+        };
+    }
+
+    /**
+     * @return The drawing of a step by a view, from handing it over
+     *         until it is on screen. Two consecutive steps are shown in
+     *         turn, so that every drawing redraws the cells in which
+     *         they differ. This needs a display.
+     */
+    public static Workload drawField(int size, double density)
+    {
+        Field[] fields = new Field[2];
+        for(int i = 0; i < fields.length; i++) {
+            Simulator simulator = new Simulator(size, size, false);
+            Randomizer.reset();
+            simulator.reset(density);
+            for(int step = 0; step < i; step++) {
+                simulator.simulateOneStep();
+            }
+            fields[i] = simulator.getField();
+        }
+        SimulatorView view = new SimulatorView(size, size);
+        return new Workload() {
+            // The step shown, so that every call shows a new one.
+            private int step;
+
+            @Override
+            public void reset()
+            {
+            }
+
+            @Override
+            public Object run()
+            {
+                step++;
+                view.showStatus(step, fields[step % fields.length]);
+                while(view.getDrawnStep() < step) {
+                    Thread.onSpinWait();
+                }
+                return view;
+            }
+
+            @Override
+            public void close()
+            {
+                view.dispose();
+            }
+        };
+    }
+
+    /**
+     * A neighbour query made at each of a fixed set of random locations
+     * in turn.
+     */
+    private abstract static class NeighbourQuery implements Workload
+    {
+        private final Field field;
+        private final Location[] locations = new Location[QUERY_LOCATIONS];
+        // The index of the next location to query.
+        private int next;
+
+        NeighbourQuery(int size, double density)
+        {
+            Simulator simulator = new Simulator(size, size, false);
+            Randomizer.reset();
+            simulator.reset(density);
+            field = simulator.getField();
+            Random rand = Randomizer.getRandom();
+            for(int i = 0; i < QUERY_LOCATIONS; i++) {
+                locations[i] = field.getLocation(rand.nextInt(size), rand.nextInt(size));
+            }
+        }
+
+        @Override
+        public void reset()
+        {
+            Randomizer.reset();
+            next = 0;
+        }
+
+        @Override
+        public Object run()
+        {
+            Location location = locations[next];
+            next = (next + 1) % QUERY_LOCATIONS;
+            return query(field, location);
+        }
+
+        /**
+         * Make the query.
+         * @param field The field to query.
+         * @param location The location to query around.
+         * @return The result of the query.
+         */
+        abstract Object query(Field field, Location location);
+    }
+}
@@ -0,0 +1,50 @@
+package banff.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Measure the neighbour queries of Field: getAdjacentLocations and
+ * getFreeAdjacentLocations, both in the form returning a new list and
+ * in the form filling a reusable cursor. Each query is made at a cell
+ * chosen from a fixed set of random cells.
+ *
+ * @author David J. Barnes and Michael Kölling
+ * @version 7.1
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NeighbourBenchmark
+{
+    // The query to make.
+    @Param({"adjacentLocations", "adjacentCursor", "freeAdjacentLocations", "freeAdjacentCursor"})
+    private String query;
+    // The factor applied to the usual creation probabilities.
+    @Param({"1.0", "2.0"})
+    private double density;
+
+    private Workload neighbours;
+
+    @Setup(Level.Trial)
+    public void createField()
+    {
+        neighbours = Workload.of(query, 300, density);
+    }
+
+    @Setup(Level.Iteration)
+    public void resetRandomizer()
+    {
+        neighbours.reset();
+    }
+
+    @Benchmark
+    public Object neighbours()
+    {
+        return neighbours.run();
+    }
+}
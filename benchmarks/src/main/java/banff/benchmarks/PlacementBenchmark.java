@@ -0,0 +1,48 @@
+package banff.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Measure Field.placeOrganism, placing organisms of a populated field
+ * at random locations of an empty one. Each call of the benchmark
+ * places 1024 organisms and then clears the field, and the time is
+ * reported per placement.
+ *
+ * @author David J. Barnes and Michael Kölling
+ * @version 7.1
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PlacementBenchmark
+{
+    // The depth and width of the field.
+    @Param({"100", "1000"})
+    private int size;
+
+    private Workload placement;
+
+    @Setup(Level.Trial)
+    public void createField()
+    {
+        placement = Workload.of("placeOrganism", size, 1.0);
+    }
+
+    @Setup(Level.Iteration)
+    public void clearField()
+    {
+        placement.reset();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(1024)
+    public Object placeOrganism()
+    {
+        return placement.run();
+    }
+}
@@ -0,0 +1,47 @@
+package banff.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Measure the population of a field when a simulation is reset.
+ *
+ * @author David J. Barnes and Michael Kölling
+ * @version 7.1
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PopulateBenchmark
+{
+    // The depth and width of the field.
+    @Param({"100", "300", "1000"})
+    private int size;
+    // The factor applied to the usual creation probabilities.
+    @Param({"0.5", "1.0", "2.0"})
+    private double density;
+
+    private Workload populate;
+
+    @Setup(Level.Trial)
+    public void createSimulator()
+    {
+        populate = Workload.of("populate", size, density);
+    }
+
+    @Setup(Level.Iteration)
+    public void resetRandomizer()
+    {
+        populate.reset();
+    }
+
+    @Benchmark
+    public Object populate()
+    {
+        return populate.run();
+    }
+}
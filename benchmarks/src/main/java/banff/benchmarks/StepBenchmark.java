@@ -0,0 +1,51 @@
+package banff.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Measure Simulator.simulateOneStep on fields of several sizes,
+ * populated more or less densely than usual.
+ *
+ * Every iteration starts again from the same population, with the
+ * randomizer reset, so that each one times the same sequence of steps.
+ *
+ * @author David J. Barnes and Michael Kölling
+ * @version 7.1
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StepBenchmark
+{
+    // The depth and width of the field.
+    @Param({"100", "300", "1000"})
+    private int size;
+    // The factor applied to the usual creation probabilities.
+    @Param({"0.5", "1.0", "2.0"})
+    private double density;
+
+    private Workload step;
+
+    @Setup(Level.Trial)
+    public void createSimulator()
+    {
+        step = Workload.of("step", size, density);
+    }
+
+    @Setup(Level.Iteration)
+    public void populate()
+    {
+        step.reset();
+    }
+
+    @Benchmark
+    public Object simulateOneStep()
+    {
+        return step.run();
+    }
+}
@@ -0,0 +1,56 @@
+package banff.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Measure the view: SimulatorView.showStatus, the time the simulation
+ * spends handing a step to the view, and the drawing of a changing
+ * field, from handing a step over until the renderer has it on screen.
+ * The view opens a window, so this benchmark needs a display.
+ *
+ * @author David J. Barnes and Michael Kölling
+ * @version 7.1
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ViewBenchmark
+{
+    // The depth and width of the field.
+    @Param({"100", "300", "1000"})
+    private int size;
+
+    private Workload view;
+    private Workload drawing;
+
+    @Setup(Level.Trial)
+    public void createViews()
+    {
+        view = Workload.of("showStatus", size, 1.0);
+        drawing = Workload.of("drawField", size, 1.0);
+    }
+
+    @TearDown(Level.Trial)
+    public void closeViews()
+    {
+        view.close();
+        drawing.close();
+    }
+
+    @Benchmark
+    public Object showStatus()
+    {
+        return view.run();
+    }
+
+    @Benchmark
+    public Object drawField()
+    {
+        return drawing.run();
+    }
+}
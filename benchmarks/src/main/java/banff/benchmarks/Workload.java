@@ -0,0 +1,60 @@
+package banff.benchmarks;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+
+/**
+ * A piece of simulation work to be timed by a benchmark.
+ *
+ * The simulation classes live in the unnamed package, which code in a
+ * named package cannot refer to, while JMH only accepts benchmarks in a
+ * named package. The work is therefore set up by the Workloads class,
+ * which lives in the unnamed package alongside the simulation, and is
+ * handed to the benchmarks through this interface.
+ *
+ * @author David J. Barnes and Michael Kölling
+ * @version 7.1
+ */
+public interface Workload extends AutoCloseable
+{
+    /**
+     * Return to the starting state, with the randomizer reset to its
+     * fixed seed, so that every iteration times the same work.
+     */
+    void reset();
+
+    /**
+     * Do one unit of the work.
+     * @return A result of the work, to be consumed by the benchmark.
+     */
+    Object run();
+
+    /**
+     * Release whatever the work holds on to, such as a window.
+     */
+    @Override
+    default void close()
+    {
+    }
+
+    /**
+     * Create a workload by name.
+     * @param name The name of a factory method of Workloads.
+     * @param size The depth and width of the field to work on.
+     * @param density The factor applied to the usual creation probabilities.
+     * @return The workload.
+     */
+    static Workload of(String name, int size, double density)
+    {
+        try {
+            Method factory = Class.forName("Workloads").getMethod(name, int.class, double.class);
+            return (Workload) factory.invoke(null, size, density);
+        }
+        catch(InvocationTargetException e) {
+            throw new IllegalStateException("Cannot create the workload " + name, e.getCause());
+        }
+        catch(ReflectiveOperationException e) {
+            throw new IllegalArgumentException("No such workload: " + name, e);
+        }
+    }
+}
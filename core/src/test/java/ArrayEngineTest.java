@@ -0,0 +1,65 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that an ArrayEngine follows the same rules as a Simulator:
+ * from the same seed and parameters, the two have the same number of
+ * each species at every step.
+ *
+ * @author David J. Barnes and Michael Kölling
+ * @version 7.1
+ */
+class ArrayEngineTest
+{
+    private static final int DEPTH = 60, WIDTH = 80;
+    private static final int STEPS = 40;
+
+    @Test
+    void countsMatchSimulatorWithDefaultParameters()
+    {
+        assertCountsMatchSimulator(1111, Parameters.DEFAULT);
+    }
+
+    @Test
+    void countsMatchSimulatorWithOtherParameters()
+    {
+        Parameters parameters = Parameters.DEFAULT
+            .with(Species.WOLF, Parameters.Trait.MAX_AGE, 15)
+            .with(Species.HARE, Parameters.Trait.BREEDING_PROBABILITY, 0.3)
+            .with(Species.OWL, Parameters.Trait.FOOD_VALUE, 6);
+        assertCountsMatchSimulator(2222, parameters);
+    }
+
+    /**
+     * Run a simulator and an engine side by side, each drawing from a
+     * stream with the given seed, and compare their counts.
+     * @param seed The seed of both streams.
+     * @param parameters The parameters of the species.
+     */
+    private static void assertCountsMatchSimulator(long seed, Parameters parameters)
+    {
+        RandomStream simulatorStream = new RandomStream(seed);
+        RandomStream engineStream = new RandomStream(seed);
+        RandomStream previous = Randomizer.useStream(simulatorStream);
+        try {
+            Simulator simulator = new Simulator(DEPTH, WIDTH, false, parameters);
+            simulator.setViability(counts -> true);
+            Randomizer.useStream(engineStream);
+            ArrayEngine engine = new ArrayEngine(DEPTH, WIDTH, parameters, EngineMemory.HEAP);
+            for(int step = 0; step <= STEPS; step++) {
+                for(Species species : Species.values()) {
+                    assertEquals(simulator.getField().getCount(species), engine.getCount(species),
+                                 species + " at step " + step);
+                }
+                Randomizer.useStream(simulatorStream);
+                simulator.simulateOneStep();
+                Randomizer.useStream(engineStream);
+                engine.simulateOneStep();
+            }
+        }
+        finally {
+            Randomizer.useStream(previous);
+        }
+    }
+}
@@ -0,0 +1,180 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests that a restored checkpoint continues exactly as the saved
+ * simulation would have, and that a bad checkpoint is rejected without
+ * touching the simulation.
+ *
+ * @author David J. Barnes and Michael Kölling
+ * @version 7.1
+ */
+class CheckpointTest
+{
+    private static final int DEPTH = 60, WIDTH = 80;
+    // The offset of the first organism's record in a checkpoint.
+    private static final int FIRST_RECORD = 32
+        + Species.values().length * Parameters.Trait.values().length * Double.BYTES;
+    private static final int RECORD_SIZE = 17;
+
+    @TempDir
+    Path directory;
+    private RandomStream previous;
+
+    @BeforeEach
+    void bindStream()
+    {
+        previous = Randomizer.useStream(new RandomStream(1111));
+    }
+
+    @AfterEach
+    void unbindStream()
+    {
+        Randomizer.useStream(previous);
+    }
+
+    @Test
+    void restoredRunMatchesContinuousRun() throws IOException
+    {
+        assertRestoredRunMatches(1);
+    }
+
+    @Test
+    void restoredParallelRunMatchesContinuousRun() throws IOException
+    {
+        assertRestoredRunMatches(3);
+    }
+
+    @Test
+    void truncatedCheckpointLeavesSimulationUntouched() throws IOException
+    {
+        byte[] saved = save();
+        Path truncated = directory.resolve("truncated");
+        Files.write(truncated, Arrays.copyOf(saved, saved.length - 5));
+        assertRejected(EOFException.class, truncated);
+    }
+
+    @Test
+    void checkpointWithTwoOrganismsInOneCellIsRejected() throws IOException
+    {
+        byte[] saved = save();
+        // Give the second organism the cell of the first.
+        System.arraycopy(saved, FIRST_RECORD, saved, FIRST_RECORD + RECORD_SIZE, Long.BYTES);
+        Path duplicated = directory.resolve("duplicated");
+        Files.write(duplicated, saved);
+        assertRejected(IOException.class, duplicated);
+    }
+
+    @Test
+    void checkpointWithOtherParametersIsRejected() throws IOException
+    {
+        Path file = directory.resolve("checkpoint");
+        Files.write(file, save());
+        Simulator simulator = newSimulator();
+        simulator.setParameters(Parameters.DEFAULT.with(Species.WOLF, Parameters.Trait.MAX_AGE, 15));
+        simulator.simulate(3);
+        String before = FieldState.of(simulator.getField());
+        assertThrows(IOException.class, () -> simulator.restoreCheckpoint(file));
+        assertEquals(before, FieldState.of(simulator.getField()));
+    }
+
+    @Test
+    void restoredStepIsRecordedInHistory() throws IOException
+    {
+        Path file = directory.resolve("checkpoint");
+        Path historyFile = directory.resolve("history.csv");
+        Simulator simulator = newSimulator();
+        try(PopulationHistory history = new PopulationHistory(historyFile, PopulationHistory.Format.CSV)) {
+            simulator.setHistory(history);
+            simulator.simulate(4);
+            simulator.saveCheckpoint(file);
+            simulator.simulate(2);
+            simulator.restoreCheckpoint(file);
+            simulator.simulateOneStep();
+        }
+        List<String> lines = Files.readAllLines(historyFile);
+        List<String> steps = lines.subList(1, lines.size()).stream()
+                                  .map(line -> line.substring(0, line.indexOf(','))).toList();
+        assertEquals(List.of("1", "2", "3", "4", "5", "6", "4", "5"), steps);
+        // The restored step is recorded with the population it was saved with.
+        assertEquals(lines.get(4), lines.get(7));
+    }
+
+    /**
+     * Save a checkpoint part way through a run, carry on, then restore
+     * it into another simulation and carry on the same distance.
+     * @param threads The number of threads stepping each simulation.
+     */
+    private void assertRestoredRunMatches(int threads) throws IOException
+    {
+        Path file = directory.resolve("checkpoint");
+        Simulator saved = newSimulator();
+        Simulator restored = newSimulator();
+        try {
+            saved.setParallelism(threads);
+            restored.setParallelism(threads);
+            saved.simulate(20);
+            saved.saveCheckpoint(file);
+            saved.simulate(20);
+
+            // Move the other simulation and the stream elsewhere first.
+            restored.simulate(7);
+            restored.restoreCheckpoint(file);
+            restored.simulate(20);
+            assertEquals(FieldState.of(saved.getField()), FieldState.of(restored.getField()));
+        }
+        finally {
+            saved.setParallelism(1);
+            restored.setParallelism(1);
+        }
+    }
+
+    /**
+     * Restore a bad checkpoint and check that it fails, leaving the
+     * simulation as it was.
+     * @param expected The exception expected.
+     * @param file The bad checkpoint.
+     */
+    private void assertRejected(Class<? extends IOException> expected, Path file)
+    {
+        Simulator simulator = newSimulator();
+        simulator.simulate(3);
+        String before = FieldState.of(simulator.getField());
+        assertThrows(expected, () -> simulator.restoreCheckpoint(file));
+        assertEquals(before, FieldState.of(simulator.getField()));
+    }
+
+    /**
+     * @return The contents of a checkpoint of a run of a few steps.
+     */
+    private byte[] save() throws IOException
+    {
+        Path file = directory.resolve("saved");
+        Simulator simulator = newSimulator();
+        simulator.simulate(10);
+        simulator.saveCheckpoint(file);
+        return Files.readAllBytes(file);
+    }
+
+    /**
+     * @return A headless simulation that runs for as long as asked.
+     */
+    private static Simulator newSimulator()
+    {
+        Simulator simulator = new Simulator(DEPTH, WIDTH, false);
+        simulator.setViability(counts -> true);
+        return simulator;
+    }
+}
@@ -0,0 +1,108 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that a simulator reusing its two fields step after step
+ * computes the same steps as one that builds every step in a new field.
+ *
+ * @author David J. Barnes and Michael Kölling
+ * @version 7.1
+ */
+class DoubleBufferTest
+{
+    private static final int DEPTH = 60, WIDTH = 80;
+    private static final int STEPS = 20;
+
+    private RandomStream previous;
+
+    @BeforeEach
+    void bindStream()
+    {
+        previous = Randomizer.useStream(new RandomStream(1111));
+    }
+
+    @AfterEach
+    void unbindStream()
+    {
+        Randomizer.useStream(previous);
+    }
+
+    @Test
+    void simulatorAlternatesBetweenTwoFields()
+    {
+        Simulator simulator = newSimulator();
+        Field first = simulator.getField();
+        simulator.simulateOneStep();
+        Field second = simulator.getField();
+        assertNotSame(first, second);
+        for(int step = 0; step < STEPS; step++) {
+            simulator.simulateOneStep();
+            assertSame(step % 2 == 0 ? first : second, simulator.getField());
+        }
+    }
+
+    @Test
+    void reusedFieldsGiveSameStepsAsNewFields()
+    {
+        RandomStream reusedStream = new RandomStream(2222);
+        RandomStream newStream = new RandomStream(2222);
+        Randomizer.useStream(reusedStream);
+        Simulator simulator = newSimulator();
+        Randomizer.useStream(newStream);
+        Field field = newSimulator().getField();
+        for(int step = 1; step <= STEPS; step++) {
+            Randomizer.useStream(reusedStream);
+            simulator.simulateOneStep();
+            Randomizer.useStream(newStream);
+            Field nextFieldState = new Field(field);
+            for(Organism anOrganism : field.getOrganisms()) {
+                anOrganism.act(field, nextFieldState);
+            }
+            field = nextFieldState;
+            assertEquals(FieldState.of(field), FieldState.of(simulator.getField()), "step " + step);
+        }
+    }
+
+    @Test
+    void clearEmptiesField()
+    {
+        Simulator simulator = newSimulator();
+        simulator.simulate(5);
+        Field field = simulator.getField();
+        List<Organism> organisms = List.copyOf(field.getOrganisms());
+        field.clear();
+
+        assertTrue(field.getOrganisms().isEmpty());
+        for(Species species : Species.values()) {
+            assertEquals(0, field.getCount(species), species.toString());
+        }
+        for(int row = 0; row < DEPTH; row++) {
+            for(int col = 0; col < WIDTH; col++) {
+                assertNull(field.getOrganismAt(row, col));
+            }
+        }
+        assertTrue(field.isEmpty(0, 0, DEPTH, WIDTH));
+        for(Organism anOrganism : organisms) {
+            assertNull(anOrganism.getField());
+        }
+    }
+
+    /**
+     * @return A headless simulation that runs for as long as asked.
+     */
+    private static Simulator newSimulator()
+    {
+        Simulator simulator = new Simulator(DEPTH, WIDTH, false);
+        simulator.setViability(counts -> true);
+        return simulator;
+    }
+}
@@ -0,0 +1,46 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that a snapshot copies the live organisms of a field, and that
+ * a field too big to copy is refused rather than overflowing.
+ *
+ * @author David J. Barnes and Michael Kölling
+ * @version 7.1
+ */
+class FieldSnapshotTest
+{
+    @Test
+    void snapshotHoldsLiveOrganisms()
+    {
+        Field field = new Field(20, 30);
+        Location hareCell = field.getLocation(2, 29);
+        Location wolfCell = field.getLocation(19, 0);
+        Location deadCell = field.getLocation(10, 10);
+        field.placeOrganism(new Hare(false, hareCell), hareCell);
+        field.placeOrganism(new Wolf(false, wolfCell), wolfCell);
+        Hare dead = new Hare(false, deadCell);
+        field.placeOrganism(dead, deadCell);
+        dead.setDead();
+
+        FieldSnapshot snapshot = FieldSnapshot.of(4, field);
+        assertEquals(4, snapshot.getStep());
+        assertEquals(Species.HARE, snapshot.getSpeciesAt(2, 29));
+        assertEquals(Species.WOLF, snapshot.getSpeciesAt(19, 0));
+        assertEquals(null, snapshot.getSpeciesAt(10, 10));
+        assertEquals(1, snapshot.getCount(Species.HARE));
+        assertEquals(1, snapshot.getCount(Species.WOLF));
+    }
+
+    @Test
+    void fieldWithTooManyCellsIsRefused()
+    {
+        // 2.5 billion cells, more than an int can index.
+        Field field = new Field(50_000, 50_000);
+        Location location = field.getLocation(49_999, 49_999);
+        field.placeOrganism(new Hare(false, location), location);
+        assertThrows(IllegalArgumentException.class, () -> FieldSnapshot.of(0, field));
+    }
+}
@@ -0,0 +1,35 @@
+import java.util.List;
+
+/**
+ * Describe the state of a field in a form that tests can compare: every
+ * organism in the order in which they act, with its cell, species,
+ * whether it is alive, its age and its food level.
+ *
+ * @author David J. Barnes and Michael Kölling
+ * @version 7.1
+ */
+final class FieldState
+{
+    private FieldState()
+    {
+    }
+
+    /**
+     * @param field The field to describe.
+     * @return A description of every organism in the field.
+     */
+    static String of(Field field)
+    {
+        StringBuilder state = new StringBuilder();
+        List<Organism> organisms = field.getOrganisms();
+        for(int slot = 0; slot < organisms.size(); slot++) {
+            Organism anOrganism = organisms.get(slot);
+            state.append(field.getOccupiedCell(slot)).append(' ')
+                 .append(anOrganism.getSpecies())
+                 .append(anOrganism.isAlive() ? " alive " : " dead ")
+                 .append(anOrganism.getAge()).append('/')
+                 .append(anOrganism.getFoodLevel()).append('\n');
+        }
+        return state.toString();
+    }
+}
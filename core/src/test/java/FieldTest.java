@@ -0,0 +1,207 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that the live counts and occupancy bitsets a field keeps up to
+ * date agree with a scan of every cell, after steps in which organisms
+ * are born, move and die.
+ *
+ * @author David J. Barnes and Michael Kölling
+ * @version 7.1
+ */
+class FieldTest
+{
+    // Wider than a chunk, so that neighbourhoods cross chunk edges.
+    private static final int DEPTH = 70, WIDTH = 130;
+    private static final int STEPS = 15;
+    private static final Species[] SPECIES = Species.values();
+
+    private RandomStream previous;
+    private final Neighbours neighbours = new Neighbours();
+
+    @BeforeEach
+    void bindStream()
+    {
+        previous = Randomizer.useStream(new RandomStream(1111));
+    }
+
+    @AfterEach
+    void unbindStream()
+    {
+        Randomizer.useStream(previous);
+    }
+
+    @Test
+    void countsAndBitsetsMatchScanAfterSequentialSteps()
+    {
+        Simulator simulator = newSimulator();
+        for(int step = 0; step < STEPS; step++) {
+            simulator.simulateOneStep();
+            assertMatchesScan(simulator.getField());
+        }
+    }
+
+    @Test
+    void countsAndBitsetsMatchScanAfterParallelSteps()
+    {
+        Simulator simulator = newSimulator();
+        simulator.setParallelism(3);
+        try {
+            for(int step = 0; step < STEPS; step++) {
+                simulator.simulateOneStep();
+                assertMatchesScan(simulator.getField());
+            }
+        }
+        finally {
+            simulator.setParallelism(1);
+        }
+    }
+
+    @Test
+    void countsMatchScanAfterDeathsWithinStep()
+    {
+        Simulator simulator = newSimulator();
+        simulator.simulate(5);
+        Field field = simulator.getField();
+        // Kill every other organism, as predators do during a step.
+        for(int slot = 0; slot < field.getOrganisms().size(); slot += 2) {
+            field.getOrganisms().get(slot).setDead();
+        }
+        assertMatchesScan(field);
+    }
+
+    @Test
+    void replacingOrganismTakesReplacedOnesPlace()
+    {
+        Field field = new Field(DEPTH, WIDTH);
+        Location first = field.getLocation(3, 4);
+        Location second = field.getLocation(40, 100);
+        Hare hare = new Hare(false, first);
+        Hare other = new Hare(false, second);
+        field.placeOrganism(hare, first);
+        field.placeOrganism(other, second);
+        Wolf wolf = new Wolf(false, first);
+        field.placeOrganism(wolf, first);
+
+        assertEquals(List.of(wolf, other), field.getOrganisms());
+        assertEquals(1, field.getCount(Species.HARE));
+        assertEquals(1, field.getCount(Species.WOLF));
+        assertMatchesScan(field);
+    }
+
+    /**
+     * Check the counts and every neighbourhood query of a field against
+     * a scan of its cells.
+     * @param field The field to check.
+     */
+    private void assertMatchesScan(Field field)
+    {
+        int[] counts = new int[SPECIES.length];
+        for(int row = 0; row < DEPTH; row++) {
+            for(int col = 0; col < WIDTH; col++) {
+                Organism anOrganism = field.getOrganismAt(row, col);
+                if(anOrganism != null && anOrganism.isAlive()) {
+                    counts[anOrganism.getSpecies().ordinal()]++;
+                }
+                assertNeighbourhoodMatchesScan(field, row, col);
+            }
+        }
+        for(Species species : SPECIES) {
+            assertEquals(counts[species.ordinal()], field.getCount(species), species.toString());
+        }
+        // Blocks within one chunk, across chunk edges, and the whole field.
+        assertOccupiedBlockNotEmpty(field, 10, 10, 14, 14);
+        assertOccupiedBlockNotEmpty(field, 60, 62, 67, 68);
+        assertOccupiedBlockNotEmpty(field, 0, 0, DEPTH, WIDTH);
+    }
+
+    /**
+     * Check the neighbourhood queries about one cell against a scan of
+     * its neighbours.
+     */
+    private void assertNeighbourhoodMatchesScan(Field field, int row, int col)
+    {
+        Set<Location> free = new HashSet<>();
+        int[] adjacent = new int[SPECIES.length];
+        for(int nextRow = Math.max(row - 1, 0); nextRow <= Math.min(row + 1, DEPTH - 1); nextRow++) {
+            for(int nextCol = Math.max(col - 1, 0); nextCol <= Math.min(col + 1, WIDTH - 1); nextCol++) {
+                if(nextRow != row || nextCol != col) {
+                    Organism anOrganism = field.getOrganismAt(nextRow, nextCol);
+                    if(anOrganism == null || !anOrganism.isAlive()) {
+                        free.add(field.getLocation(nextRow, nextCol));
+                    }
+                    else {
+                        adjacent[anOrganism.getSpecies().ordinal()]++;
+                    }
+                }
+            }
+        }
+        Location location = field.getLocation(row, col);
+        Set<Location> found = new HashSet<>();
+        field.getFreeAdjacentLocations(location, neighbours);
+        while(neighbours.hasNext()) {
+            found.add(neighbours.next());
+        }
+        assertEquals(free, found, "free cells around " + location);
+
+        for(Species species : SPECIES) {
+            field.getAdjacentOrganisms(location, species.bit(), neighbours);
+            int count = 0;
+            while(neighbours.hasNext()) {
+                Organism anOrganism = neighbours.nextOrganism();
+                if(anOrganism.isAlive()) {
+                    assertEquals(species, anOrganism.getSpecies());
+                    count++;
+                }
+            }
+            assertEquals(adjacent[species.ordinal()], count, species + " around " + location);
+
+            boolean eaterAdjacent = false;
+            for(Species eater : SPECIES) {
+                if((species.eaterMask() & eater.bit()) != 0 && adjacent[eater.ordinal()] > 0) {
+                    eaterAdjacent = true;
+                }
+            }
+            assertEquals(eaterAdjacent, field.isAdjacent(location, species.eaterMask()),
+                         "eaters of " + species + " around " + location);
+        }
+    }
+
+    /**
+     * Check that a block of a field holding an organism, live or dead,
+     * is not reported empty. A block may be reported as occupied when
+     * it is not, since whole chunks are examined.
+     * @param lastRow The row after the last row of the block.
+     * @param lastCol The column after the last column of the block.
+     */
+    private static void assertOccupiedBlockNotEmpty(Field field, int firstRow, int firstCol,
+                                                    int lastRow, int lastCol)
+    {
+        for(int row = firstRow; row < lastRow; row++) {
+            for(int col = firstCol; col < lastCol; col++) {
+                if(field.getOrganismAt(row, col) != null) {
+                    assertFalse(field.isEmpty(firstRow, firstCol, lastRow, lastCol));
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return A headless simulation that runs for as long as asked.
+     */
+    private static Simulator newSimulator()
+    {
+        Simulator simulator = new Simulator(DEPTH, WIDTH, false);
+        simulator.setViability(counts -> true);
+        return simulator;
+    }
+}
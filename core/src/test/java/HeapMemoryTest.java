@@ -0,0 +1,54 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the arrays that ArrayEngine keeps on the heap.
+ *
+ * @author David J. Barnes and Michael Kölling
+ * @version 7.1
+ */
+class HeapMemoryTest
+{
+    @Test
+    void arraysStartZeroedAndKeepTheirValues()
+    {
+        EngineMemory.Ints ints = EngineMemory.HEAP.ints(100);
+        assertEquals(100, ints.length());
+        for(long index = 0; index < 100; index++) {
+            assertEquals(0, ints.get(index));
+        }
+        ints.set(3, 42);
+        ints.fill(10, 20, -1);
+        ints.fill(15, 17, 0);
+        assertEquals(42, ints.get(3));
+        assertEquals(-1, ints.get(10));
+        assertEquals(0, ints.get(16));
+        assertEquals(-1, ints.get(19));
+        assertEquals(0, ints.get(20));
+
+        EngineMemory.Ints resized = ints.resize(300);
+        assertEquals(300, resized.length());
+        assertEquals(42, resized.get(3));
+        assertEquals(-1, resized.get(19));
+        assertEquals(0, resized.get(299));
+        assertEquals(42, resized.resize(5).get(3));
+    }
+
+    @Test
+    void lengthsBeyondAnArrayAreRefused()
+    {
+        assertThrows(IllegalArgumentException.class, () -> EngineMemory.HEAP.ints(-1));
+        assertThrows(IllegalArgumentException.class, () -> EngineMemory.HEAP.ints(1L << 31));
+        EngineMemory.Ints ints = EngineMemory.HEAP.ints(10);
+        assertThrows(IllegalArgumentException.class, () -> ints.resize(1L << 32));
+    }
+
+    @Test
+    void fieldTooBigForTheHeapIsRefused()
+    {
+        // 2.5 billion cells need a memory outside the heap.
+        assertThrows(IllegalArgumentException.class, () -> new ArrayEngine(50_000, 50_000));
+    }
+}
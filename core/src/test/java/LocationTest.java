@@ -0,0 +1,82 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that a field hands out one canonical location per cell, shared
+ * by the fields built from it, wherever organisms live.
+ *
+ * @author David J. Barnes and Michael Kölling
+ * @version 7.1
+ */
+class LocationTest
+{
+    // Wider than a chunk, so that some cells lie in unallocated chunks.
+    private static final int DEPTH = 70, WIDTH = 130;
+
+    private RandomStream previous;
+    private final Field field = new Field(DEPTH, WIDTH);
+    private final Location placed = field.getLocation(3, 4);
+
+    @BeforeEach
+    void placeHare()
+    {
+        previous = Randomizer.useStream(new RandomStream(1111));
+        field.placeOrganism(new Hare(false, placed), placed);
+    }
+
+    @AfterEach
+    void unbindStream()
+    {
+        Randomizer.useStream(previous);
+    }
+
+    @Test
+    void sameCellGivesSameLocation()
+    {
+        Location location = field.getLocation(10, 20);
+        assertSame(location, field.getLocation(10, 20));
+        assertEquals(new Location(10, 20), location);
+    }
+
+    @Test
+    void fieldsSharingLayoutShareLocations()
+    {
+        Field next = new Field(field);
+        Location location = field.getLocation(5, 6);
+        next.placeOrganism(new Hare(false, location), location);
+        assertSame(location, next.getLocation(5, 6));
+
+        // The table outlives the field that first used it, which
+        // releases its chunk once it has stayed empty for a clear.
+        field.clear();
+        field.clear();
+        assertSame(location, next.getLocation(5, 6));
+    }
+
+    @Test
+    void neighboursAreCanonical()
+    {
+        Neighbours neighbours = field.getAdjacentLocations(field.getLocation(10, 10), new Neighbours());
+        while(neighbours.hasNext()) {
+            Location location = neighbours.next();
+            assertSame(field.getLocation(location.row(), location.col()), location);
+        }
+    }
+
+    @Test
+    void unallocatedChunksGiveEqualLocations()
+    {
+        Location location = field.getLocation(DEPTH - 1, WIDTH - 1);
+        Location again = field.getLocation(DEPTH - 1, WIDTH - 1);
+        assertEquals(location, again);
+        assertNotSame(location, again);
+        assertNull(field.getOrganismAt(DEPTH - 1, WIDTH - 1));
+        assertSame(field.getOrganismAt(placed.row(), placed.col()), field.getOrganismAt(placed));
+    }
+}
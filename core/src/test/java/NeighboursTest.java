@@ -0,0 +1,125 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that a neighbour cursor yields every adjacent cell exactly once,
+ * in the same order as the list it replaces, and can be reused.
+ *
+ * @author David J. Barnes and Michael Kölling
+ * @version 7.1
+ */
+class NeighboursTest
+{
+    private static final int DEPTH = 5, WIDTH = 7;
+
+    private RandomStream previous;
+    private final Field field = new Field(DEPTH, WIDTH);
+    private final Neighbours neighbours = new Neighbours();
+
+    @BeforeEach
+    void bindStream()
+    {
+        previous = Randomizer.useStream(new RandomStream(1111));
+    }
+
+    @AfterEach
+    void unbindStream()
+    {
+        Randomizer.useStream(previous);
+    }
+
+    @Test
+    void everyAdjacentCellIsYieldedOnce()
+    {
+        for(int row = 0; row < DEPTH; row++) {
+            for(int col = 0; col < WIDTH; col++) {
+                Location location = field.getLocation(row, col);
+                field.getAdjacentLocations(location, neighbours);
+                Set<Location> expected = new HashSet<>();
+                for(int nextRow = Math.max(row - 1, 0); nextRow <= Math.min(row + 1, DEPTH - 1); nextRow++) {
+                    for(int nextCol = Math.max(col - 1, 0); nextCol <= Math.min(col + 1, WIDTH - 1); nextCol++) {
+                        if(nextRow != row || nextCol != col) {
+                            expected.add(field.getLocation(nextRow, nextCol));
+                        }
+                    }
+                }
+                assertEquals(expected.size(), neighbours.remaining());
+                Set<Location> found = new HashSet<>();
+                while(neighbours.hasNext()) {
+                    int remaining = neighbours.remaining();
+                    Location next = neighbours.next();
+                    assertEquals(next, neighbours.location());
+                    assertTrue(found.add(next), "yielded twice: " + next);
+                    assertEquals(remaining - 1, neighbours.remaining());
+                }
+                assertEquals(expected, found, "around " + location);
+                assertThrows(NoSuchElementException.class, neighbours::next);
+            }
+        }
+    }
+
+    @Test
+    void cursorGivesSameOrderAsList()
+    {
+        RandomStream listStream = new RandomStream(2222);
+        RandomStream cursorStream = new RandomStream(2222);
+        for(int row = 0; row < DEPTH; row++) {
+            for(int col = 0; col < WIDTH; col++) {
+                Location location = field.getLocation(row, col);
+                Randomizer.useStream(listStream);
+                List<Location> list = field.getAdjacentLocations(location);
+                Randomizer.useStream(cursorStream);
+                field.getAdjacentLocations(location, neighbours);
+                List<Location> drawn = new ArrayList<>();
+                while(neighbours.hasNext()) {
+                    drawn.add(neighbours.next());
+                }
+                assertEquals(list, drawn, "around " + location);
+            }
+        }
+    }
+
+    @Test
+    void fillingDiscardsPreviousCells()
+    {
+        field.getAdjacentLocations(field.getLocation(2, 3), neighbours);
+        neighbours.next();
+        Location corner = field.getLocation(0, 0);
+        field.getAdjacentLocations(corner, neighbours);
+        assertEquals(3, neighbours.remaining());
+        while(neighbours.hasNext()) {
+            Location next = neighbours.next();
+            assertTrue(next.row() <= 1 && next.col() <= 1 && !next.equals(corner));
+        }
+    }
+
+    @Test
+    void occupiedCellsAreNotFree()
+    {
+        Location centre = field.getLocation(2, 3);
+        Location taken = field.getLocation(1, 2);
+        field.placeOrganism(new Hare(false, taken), taken);
+        field.getFreeAdjacentLocations(centre, neighbours);
+        assertEquals(7, neighbours.remaining());
+        while(neighbours.hasNext()) {
+            assertFalse(neighbours.next().equals(taken));
+        }
+
+        field.getAdjacentOrganisms(centre, Species.HARE.bit(), neighbours);
+        assertEquals(1, neighbours.remaining());
+        assertEquals(Species.HARE, neighbours.nextOrganism().getSpecies());
+        assertEquals(taken, neighbours.location());
+    }
+}
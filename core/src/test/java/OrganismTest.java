@@ -0,0 +1,138 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the rules that every organism acts by, one situation at a time:
+ * dying of old age, of hunger or by being eaten, hunting, spreading and
+ * overcrowding.
+ *
+ * @author David J. Barnes and Michael Kölling
+ * @version 7.1
+ */
+class OrganismTest
+{
+    private static final int DEPTH = 10, WIDTH = 10;
+
+    private RandomStream previous;
+    private final Field field = new Field(DEPTH, WIDTH);
+    private final Field nextFieldState = new Field(field);
+
+    @BeforeEach
+    void bindStream()
+    {
+        previous = Randomizer.useStream(new RandomStream(1111));
+    }
+
+    @AfterEach
+    void unbindStream()
+    {
+        Randomizer.useStream(previous);
+    }
+
+    @Test
+    void starvingPredatorDies()
+    {
+        Wolf wolf = place(new Wolf(false, field.getLocation(5, 5)));
+        wolf.setState(0, 1);
+        wolf.act(field, nextFieldState);
+        assertFalse(wolf.isAlive());
+        assertEquals(0, nextFieldState.getCount(Species.WOLF));
+        assertEquals(0, field.getCount(Species.WOLF));
+    }
+
+    @Test
+    void predatorMovesOntoPreyAndEats()
+    {
+        Wolf wolf = place(new Wolf(false, field.getLocation(5, 5)));
+        // Hungry, but not yet starving.
+        wolf.setState(0, 2);
+        Hare hare = place(new Hare(false, field.getLocation(5, 6)));
+        wolf.act(field, nextFieldState);
+
+        assertFalse(hare.isAlive());
+        assertTrue(wolf.isAlive());
+        assertEquals(new Location(5, 6), wolf.getLocation());
+        assertSame(wolf, nextFieldState.getOrganismAt(5, 6));
+        assertEquals(Parameters.DEFAULT.foodValue(Species.WOLF), wolf.getFoodLevel());
+    }
+
+    @Test
+    void organismDiesOfOldAge()
+    {
+        Hare hare = place(new Hare(false, field.getLocation(5, 5)));
+        hare.setState(Species.HARE.maxAge(), 0);
+        hare.act(field, nextFieldState);
+        assertFalse(hare.isAlive());
+        assertEquals(0, nextFieldState.getCount(Species.HARE));
+    }
+
+    @Test
+    void fieldParametersApply()
+    {
+        Parameters parameters = Parameters.DEFAULT.with(Species.HARE, Parameters.Trait.MAX_AGE, 1);
+        field.setParameters(parameters);
+        nextFieldState.setParameters(parameters);
+        Hare young = place(new Hare(false, field.getLocation(2, 2)));
+        Hare old = place(new Hare(false, field.getLocation(7, 7)));
+        old.setState(1, 0);
+        young.act(field, nextFieldState);
+        old.act(field, nextFieldState);
+        assertTrue(young.isAlive());
+        assertFalse(old.isAlive());
+    }
+
+    @Test
+    void eatenPlantDies()
+    {
+        Berry berry = place(new Berry(false, field.getLocation(5, 5)));
+        place(new Bear(false, field.getLocation(4, 4)));
+        berry.act(field, nextFieldState);
+        assertFalse(berry.isAlive());
+        assertEquals(0, nextFieldState.getCount(Species.BERRY));
+    }
+
+    @Test
+    void uneatenPlantSpreadsOneSeedling()
+    {
+        // Deer eat acorns, not berries.
+        Berry berry = place(new Berry(false, field.getLocation(5, 5)));
+        place(new Deer(false, field.getLocation(4, 4)));
+        berry.act(field, nextFieldState);
+        assertTrue(berry.isAlive());
+        assertEquals(2, nextFieldState.getCount(Species.BERRY));
+        assertSame(berry, nextFieldState.getOrganismAt(berry.getLocation()));
+    }
+
+    @Test
+    void organismWithNowhereToGoDies()
+    {
+        Hare hare = place(new Hare(false, field.getLocation(0, 0)));
+        for(Location location : new Location[] {
+                nextFieldState.getLocation(0, 1), nextFieldState.getLocation(1, 0),
+                nextFieldState.getLocation(1, 1) }) {
+            nextFieldState.placeOrganism(new Deer(false, location), location);
+        }
+        hare.act(field, nextFieldState);
+        assertFalse(hare.isAlive());
+        assertNull(hare.getLocation());
+        assertEquals(0, nextFieldState.getCount(Species.HARE));
+    }
+
+    /**
+     * Place an organism in the current field at its location.
+     * @param organism The organism.
+     * @return The organism.
+     */
+    private <T extends Organism> T place(T organism)
+    {
+        field.placeOrganism(organism, organism.getLocation());
+        return organism;
+    }
+}
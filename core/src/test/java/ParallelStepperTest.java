@@ -0,0 +1,56 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that a parallel step depends only on the seed, not on the
+ * number of threads or on how the tiles are scheduled.
+ *
+ * @author David J. Barnes and Michael Kölling
+ * @version 7.1
+ */
+class ParallelStepperTest
+{
+    // Big enough for several tiles in each direction.
+    private static final int DEPTH = 90, WIDTH = 110;
+    private static final int STEPS = 40;
+
+    @Test
+    void sameSeedGivesSameRunWhateverTheNumberOfThreads()
+    {
+        String twoThreads = run(1234, 2);
+        assertEquals(twoThreads, run(1234, 2));
+        assertEquals(twoThreads, run(1234, 3));
+        assertEquals(twoThreads, run(1234, 8));
+    }
+
+    @Test
+    void otherSeedGivesOtherRun()
+    {
+        assertNotEquals(run(1234, 4), run(4321, 4));
+    }
+
+    /**
+     * Populate a field and step it in parallel, drawing from a stream
+     * with the given seed.
+     * @param seed The seed.
+     * @param threads The number of threads.
+     * @return The state of the field after the last step.
+     */
+    private static String run(long seed, int threads)
+    {
+        RandomStream previous = Randomizer.useStream(new RandomStream(seed));
+        Simulator simulator = new Simulator(DEPTH, WIDTH, false);
+        try {
+            simulator.setViability(counts -> true);
+            simulator.setParallelism(threads);
+            simulator.simulate(STEPS);
+            return FieldState.of(simulator.getField());
+        }
+        finally {
+            simulator.setParallelism(1);
+            Randomizer.useStream(previous);
+        }
+    }
+}
@@ -0,0 +1,49 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that the shared generator passes every request, including a
+ * new seed, on to the stream of the calling thread.
+ *
+ * @author David J. Barnes and Michael Kölling
+ * @version 7.1
+ */
+class RandomizerTest
+{
+    @Test
+    void setSeedRestartsBoundStream()
+    {
+        RandomStream stream = new RandomStream(1);
+        RandomStream previous = Randomizer.useStream(stream);
+        try {
+            Random rand = Randomizer.getRandom();
+            rand.setSeed(42);
+            RandomStream expected = new RandomStream(42);
+            assertEquals(expected.getState(), stream.getState());
+            assertEquals(expected.nextLong(), rand.nextLong());
+            assertEquals(expected.nextInt(100), rand.nextInt(100));
+        }
+        finally {
+            Randomizer.useStream(previous);
+        }
+    }
+
+    @Test
+    void sameSeedGivesSameNumbers()
+    {
+        RandomStream previous = Randomizer.useStream(new RandomStream(1));
+        try {
+            Random rand = Randomizer.getRandom();
+            rand.setSeed(7);
+            double first = rand.nextDouble();
+            rand.setSeed(7);
+            assertEquals(first, rand.nextDouble());
+        }
+        finally {
+            Randomizer.useStream(previous);
+        }
+    }
+}
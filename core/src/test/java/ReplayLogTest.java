@@ -0,0 +1,174 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests that every frame played back from a replay log matches the
+ * live run it was recorded from, however the replayer seeks.
+ *
+ * @author David J. Barnes and Michael Kölling
+ * @version 7.1
+ */
+class ReplayLogTest
+{
+    private static final int DEPTH = 50, WIDTH = 70;
+    private static final int STEPS = 60;
+    private static final int KEYFRAME_INTERVAL = 8;
+
+    @TempDir
+    Path directory;
+    private RandomStream previous;
+
+    @BeforeEach
+    void bindStream()
+    {
+        previous = Randomizer.useStream(new RandomStream(1111));
+    }
+
+    @AfterEach
+    void unbindStream()
+    {
+        Randomizer.useStream(previous);
+    }
+
+    @Test
+    void replayedFramesMatchLiveRun() throws IOException
+    {
+        Path file = directory.resolve("replay");
+        Simulator simulator = newSimulator();
+        List<FieldSnapshot> live = new ArrayList<>();
+        try(ReplayLog log = new ReplayLog(file, DEPTH, WIDTH, KEYFRAME_INTERVAL)) {
+            simulator.addRecorder(log);
+            for(int step = 1; step <= STEPS; step++) {
+                simulator.simulateOneStep();
+                live.add(FieldSnapshot.of(step, simulator.getField()));
+            }
+        }
+
+        try(Replayer replayer = new Replayer(file)) {
+            assertEquals(1, replayer.getFirstStep());
+            assertEquals(STEPS, replayer.getLastStep());
+            // In order, as in playback, and then jumping about.
+            for(FieldSnapshot snapshot : live) {
+                assertSameField(snapshot, replayer.seek(snapshot.getStep()));
+            }
+            List<FieldSnapshot> shuffled = new ArrayList<>(live);
+            Collections.shuffle(shuffled, new Random(1));
+            for(FieldSnapshot snapshot : shuffled) {
+                assertSameField(snapshot, replayer.seek(snapshot.getStep()));
+            }
+        }
+    }
+
+    @Test
+    void resetStartsLogAgain() throws IOException
+    {
+        Path file = directory.resolve("replay");
+        Simulator simulator = newSimulator();
+        try(ReplayLog log = new ReplayLog(file, DEPTH, WIDTH, KEYFRAME_INTERVAL)) {
+            simulator.addRecorder(log);
+            simulator.simulate(30);
+            simulator.reset();
+            simulator.simulate(12);
+        }
+        FieldSnapshot live = FieldSnapshot.of(12, simulator.getField());
+
+        try(Replayer replayer = new Replayer(file)) {
+            assertEquals(0, replayer.getFirstStep());
+            assertEquals(12, replayer.getLastStep());
+            assertSameField(live, replayer.seek(12));
+        }
+    }
+
+    @Test
+    void restoringCheckpointCutsLogBack() throws IOException
+    {
+        Path file = directory.resolve("replay");
+        Path checkpoint = directory.resolve("checkpoint");
+        Simulator simulator = newSimulator();
+        List<FieldSnapshot> live = new ArrayList<>();
+        try(ReplayLog log = new ReplayLog(file, DEPTH, WIDTH, KEYFRAME_INTERVAL)) {
+            simulator.addRecorder(log);
+            for(int step = 1; step <= 30; step++) {
+                simulator.simulateOneStep();
+                if(step == 20) {
+                    simulator.saveCheckpoint(checkpoint);
+                }
+                if(step <= 20) {
+                    live.add(FieldSnapshot.of(step, simulator.getField()));
+                }
+            }
+            // Go back to step 20, then carry on differently.
+            simulator.restoreCheckpoint(checkpoint);
+            Randomizer.useStream(new RandomStream(2222));
+            for(int step = 21; step <= 35; step++) {
+                simulator.simulateOneStep();
+                live.add(FieldSnapshot.of(step, simulator.getField()));
+            }
+        }
+
+        try(Replayer replayer = new Replayer(file)) {
+            assertEquals(1, replayer.getFirstStep());
+            assertEquals(35, replayer.getLastStep());
+            for(FieldSnapshot snapshot : live) {
+                assertSameField(snapshot, replayer.seek(snapshot.getStep()));
+            }
+        }
+    }
+
+    @Test
+    void fieldWithTooManyCellsIsRefused() throws IOException
+    {
+        Path file = directory.resolve("replay");
+        assertThrows(IllegalArgumentException.class, () -> new ReplayLog(file, 50_000, 50_000));
+
+        // A log claiming such a field cannot be played back either.
+        ByteBuffer header = ByteBuffer.allocate(ReplayLog.HEADER_SIZE);
+        header.putInt(ReplayLog.MAGIC).putInt(ReplayLog.VERSION).putInt(50_000).putInt(50_000)
+              .putInt(Species.values().length);
+        Files.write(file, header.array());
+        assertThrows(IOException.class, () -> new Replayer(file));
+    }
+
+    /**
+     * Check that a replayed frame shows the same field as a live one.
+     * @param expected The frame of the live run.
+     * @param actual The frame played back.
+     */
+    private static void assertSameField(FieldSnapshot expected, FieldSnapshot actual)
+    {
+        assertEquals(expected.getStep(), actual.getStep());
+        for(int row = 0; row < DEPTH; row++) {
+            for(int col = 0; col < WIDTH; col++) {
+                assertEquals(expected.getSpeciesAt(row, col), actual.getSpeciesAt(row, col),
+                             "step " + expected.getStep() + ", cell " + row + "," + col);
+            }
+        }
+        for(Species species : Species.values()) {
+            assertEquals(expected.getCount(species), actual.getCount(species));
+        }
+    }
+
+    /**
+     * @return A headless simulation that runs for as long as asked.
+     */
+    private static Simulator newSimulator()
+    {
+        Simulator simulator = new Simulator(DEPTH, WIDTH, false);
+        simulator.setViability(counts -> true);
+        return simulator;
+    }
+}
@@ -0,0 +1,89 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the diet matrix: that the masks say who eats whom, that the
+ * prey and eater masks agree with each other, and that a field finds
+ * food by them.
+ *
+ * @author David J. Barnes and Michael Kölling
+ * @version 7.1
+ */
+class SpeciesTest
+{
+    private RandomStream previous;
+
+    @BeforeEach
+    void bindStream()
+    {
+        previous = Randomizer.useStream(new RandomStream(1111));
+    }
+
+    @AfterEach
+    void unbindStream()
+    {
+        Randomizer.useStream(previous);
+    }
+
+    @Test
+    void masksDescribeDiets()
+    {
+        assertEquals(Species.HARE.bit(), Species.WOLF.preyMask());
+        assertEquals(Species.HARE.bit(), Species.OWL.preyMask());
+        // Bears also eat berries, but only hunt hares.
+        assertEquals(Species.HARE.bit(), Species.BEAR.preyMask());
+        assertEquals(Species.WOLF.bit() | Species.OWL.bit() | Species.BEAR.bit(),
+                     Species.HARE.eaterMask());
+        assertEquals(Species.HARE.bit() | Species.BEAR.bit(), Species.BERRY.eaterMask());
+        assertEquals(Species.DEER.bit(), Species.ACORN.eaterMask());
+        assertEquals(0, Species.DEER.eaterMask());
+    }
+
+    @Test
+    void preyAndEaterMasksAgree()
+    {
+        for(Species eater : Species.values()) {
+            if(eater.kind() != Species.Kind.PREDATOR) {
+                assertEquals(0, eater.preyMask(), eater.toString());
+            }
+            for(Species food : Species.values()) {
+                boolean hunts = (eater.preyMask() & food.bit()) != 0;
+                boolean eats = (food.eaterMask() & eater.bit()) != 0;
+                if(hunts) {
+                    assertTrue(eats, eater + " hunts " + food);
+                    assertEquals(Species.Kind.PREY, food.kind());
+                }
+                else if(eats) {
+                    assertTrue(eater.kind() != Species.Kind.PREDATOR
+                               || food.kind() == Species.Kind.PLANT, eater + " eats " + food);
+                }
+            }
+        }
+    }
+
+    @Test
+    void fieldFindsFoodByMask()
+    {
+        Field field = new Field(10, 10);
+        Location centre = field.getLocation(5, 5);
+        Location hare = field.getLocation(4, 5);
+        field.placeOrganism(new Hare(false, hare), hare);
+        Location deer = field.getLocation(6, 6);
+        field.placeOrganism(new Deer(false, deer), deer);
+
+        Neighbours prey = field.getAdjacentOrganisms(centre, Species.WOLF.preyMask(), new Neighbours());
+        assertEquals(1, prey.remaining());
+        assertSame(Species.HARE, prey.nextOrganism().getSpecies());
+
+        // Hares eat berries and deer eat acorns.
+        assertTrue(field.isAdjacent(centre, Species.BERRY.eaterMask()));
+        assertTrue(field.isAdjacent(centre, Species.ACORN.eaterMask()));
+        assertFalse(field.isAdjacent(centre, Species.HARE.eaterMask()));
+    }
+}
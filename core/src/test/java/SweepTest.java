@@ -0,0 +1,165 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests that a sweep writes its runs in order, with the same results
+ * however many threads run it, and that each run is the simulation its
+ * seed and parameters describe.
+ *
+ * @author David J. Barnes and Michael Kölling
+ * @version 7.1
+ */
+class SweepTest
+{
+    private static final int DEPTH = 40, WIDTH = 60;
+    private static final int MAX_STEPS = 30;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void resultsDoNotDependOnThreads() throws IOException, InterruptedException
+    {
+        Path oneThread = directory.resolve("one.csv");
+        Path threeThreads = directory.resolve("three.csv");
+        newSweep().run(oneThread, 1);
+        newSweep().run(threeThreads, 3);
+        assertEquals(Files.readAllLines(oneThread), Files.readAllLines(threeThreads));
+    }
+
+    @Test
+    void runsAreWrittenInOrder() throws IOException, InterruptedException
+    {
+        Sweep sweep = newSweep();
+        assertEquals(12, sweep.getRunCount());
+        Path file = directory.resolve("sweep.csv");
+        sweep.run(file, 2);
+        List<String> lines = Files.readAllLines(file);
+        assertEquals("run,seed,wolf.max_age,hare.breeding_probability,survival,extinct,step,"
+                     + "wolf,hare,deer,bear,owl,berry,acorn", lines.get(0));
+
+        // The first axis changes slowest and the seed fastest.
+        long[] seeds = { 5, 6 };
+        int[] maxAges = { 8, 12 };
+        double[] probabilities = { 0.1, 0.2, 0.3 };
+        int run = 0;
+        int step = 0;
+        int survival = 0;
+        for(String line : lines.subList(1, lines.size())) {
+            String[] columns = line.split(",");
+            if(Integer.parseInt(columns[0]) != run) {
+                // A run has a line for each step up to its survival.
+                assertEquals(survival, step - 1, "survival of run " + run);
+                run++;
+                step = 0;
+            }
+            survival = Integer.parseInt(columns[4]);
+            assertEquals(run, Integer.parseInt(columns[0]));
+            assertEquals(seeds[run % 2], Long.parseLong(columns[1]));
+            assertEquals(maxAges[run / 6], Integer.parseInt(columns[2]));
+            assertEquals(probabilities[run / 2 % 3], Double.parseDouble(columns[3]));
+            assertEquals(step, Integer.parseInt(columns[6]));
+            step++;
+        }
+        assertEquals(11, run);
+    }
+
+    @Test
+    void runMatchesSimulation() throws IOException, InterruptedException
+    {
+        Sweep sweep = new Sweep(DEPTH, WIDTH, MAX_STEPS);
+        sweep.addAxis(Species.WOLF, Parameters.Trait.MAX_AGE, 12);
+        sweep.setSeeds(7);
+        sweep.setViability(counts -> true);
+        Path file = directory.resolve("sweep.csv");
+        sweep.run(file, 1);
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(MAX_STEPS + 2, lines.size());
+
+        RandomStream previous = Randomizer.useStream(new RandomStream(7));
+        try {
+            Parameters parameters = Parameters.DEFAULT.with(Species.WOLF, Parameters.Trait.MAX_AGE, 12);
+            Simulator simulator = new Simulator(DEPTH, WIDTH, false, parameters);
+            for(int step = 0; step <= MAX_STEPS; step++) {
+                StringBuilder expected = new StringBuilder("0,7,12," + MAX_STEPS + ",0," + step);
+                for(Species species : Species.values()) {
+                    expected.append(',').append(simulator.getField().getCount(species));
+                }
+                assertEquals(expected.toString(), lines.get(step + 1));
+                simulator.simulateOneStep();
+            }
+        }
+        finally {
+            Randomizer.useStream(previous);
+        }
+    }
+
+    @Test
+    void runStopsOnceNotViable() throws IOException, InterruptedException
+    {
+        Sweep sweep = new Sweep(DEPTH, WIDTH, MAX_STEPS);
+        sweep.setViability(counts -> false);
+        Path file = directory.resolve("sweep.csv");
+        sweep.run(file, 1);
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(2, lines.size());
+        assertEquals("0,1111,0,1,0", lines.get(1).substring(0, "0,1111,0,1,0".length()));
+    }
+
+    @Test
+    void invalidSettingsAreRefused()
+    {
+        assertThrows(IllegalArgumentException.class, () -> new Sweep(0, WIDTH, MAX_STEPS));
+        Sweep sweep = new Sweep(DEPTH, WIDTH, MAX_STEPS);
+        assertThrows(IllegalArgumentException.class,
+                     () -> sweep.addAxis(Species.WOLF, Parameters.Trait.MAX_AGE));
+        assertThrows(IllegalArgumentException.class, () -> sweep.setSeeds());
+        assertThrows(IllegalArgumentException.class, () -> sweep.run(directory.resolve("x"), 0));
+    }
+
+    @Test
+    void parametersAreCheckedAndCopied()
+    {
+        Parameters parameters = Parameters.DEFAULT;
+        assertThrows(IllegalArgumentException.class,
+                     () -> parameters.with(Species.WOLF, Parameters.Trait.MAX_AGE, 0));
+        assertThrows(IllegalArgumentException.class,
+                     () -> parameters.with(Species.WOLF, Parameters.Trait.MAX_LITTER_SIZE, 2.5));
+        assertThrows(IllegalArgumentException.class,
+                     () -> parameters.with(Species.HARE, Parameters.Trait.BREEDING_AGE, -1));
+        assertThrows(IllegalArgumentException.class,
+                     () -> parameters.with(Species.HARE, Parameters.Trait.BREEDING_PROBABILITY, 1.5));
+        assertThrows(IllegalArgumentException.class,
+                     () -> parameters.with(Species.HARE, Parameters.Trait.CREATION_PROBABILITY, Double.NaN));
+
+        Parameters changed = parameters.with(Species.WOLF, Parameters.Trait.MAX_AGE, 15);
+        assertEquals(15, changed.maxAge(Species.WOLF));
+        assertEquals(Species.WOLF.maxAge(), parameters.maxAge(Species.WOLF));
+        assertNotEquals(parameters, changed);
+        assertEquals(changed, parameters.with(Species.WOLF, Parameters.Trait.MAX_AGE, 15));
+        assertEquals(0, changed.with(Species.HARE, Parameters.Trait.BREEDING_AGE, 0)
+                               .breedingAge(Species.HARE));
+    }
+
+    /**
+     * @return A sweep of two wolf ages by three hare breeding
+     *         probabilities, with two seeds.
+     */
+    private static Sweep newSweep()
+    {
+        Sweep sweep = new Sweep(DEPTH, WIDTH, MAX_STEPS);
+        sweep.addAxis(Species.WOLF, Parameters.Trait.MAX_AGE, 8, 12);
+        sweep.addAxis(Species.HARE, Parameters.Trait.BREEDING_PROBABILITY, 0.1, 0.2, 0.3);
+        sweep.setSeeds(5, 6);
+        return sweep;
+    }
+}
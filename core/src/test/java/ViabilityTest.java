@@ -0,0 +1,123 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.ToIntFunction;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests the viability rules, both on their own and as decided from the
+ * live counts of a field.
+ *
+ * @author David J. Barnes and Michael Kölling
+ * @version 7.1
+ */
+class ViabilityTest
+{
+    private RandomStream previous;
+
+    @BeforeEach
+    void bindStream()
+    {
+        previous = Randomizer.useStream(new RandomStream(1111));
+    }
+
+    @AfterEach
+    void unbindStream()
+    {
+        Randomizer.useStream(previous);
+    }
+
+    @Test
+    void allOfNeedsEverySpecies()
+    {
+        Viability rule = Viability.allOf(Species.HARE, Species.OWL);
+        assertTrue(rule.test(counts(Species.HARE, Species.OWL, Species.BERRY)));
+        assertFalse(rule.test(counts(Species.HARE, Species.WOLF)));
+        assertFalse(rule.test(counts()));
+        assertTrue(Viability.allOf().test(counts()));
+    }
+
+    @Test
+    void anyOfNeedsOneSpeciesOfKind()
+    {
+        Viability rule = Viability.anyOf(Species.Kind.PREDATOR);
+        assertTrue(rule.test(counts(Species.BEAR)));
+        assertTrue(rule.test(counts(Species.OWL, Species.HARE)));
+        assertFalse(rule.test(counts(Species.HARE, Species.DEER, Species.ACORN)));
+    }
+
+    @Test
+    void rulesCombine()
+    {
+        Viability predatorAndPrey = Viability.anyOf(Species.Kind.PREDATOR)
+            .and(Viability.anyOf(Species.Kind.PREY));
+        assertTrue(predatorAndPrey.test(counts(Species.OWL, Species.DEER)));
+        assertFalse(predatorAndPrey.test(counts(Species.OWL, Species.BERRY)));
+
+        Viability plantsOrHares = Viability.anyOf(Species.Kind.PLANT).or(Viability.allOf(Species.HARE));
+        assertTrue(plantsOrHares.test(counts(Species.ACORN)));
+        assertTrue(plantsOrHares.test(counts(Species.HARE)));
+        assertFalse(plantsOrHares.test(counts(Species.WOLF)));
+    }
+
+    @Test
+    void fieldDecidesFromLiveOrganisms()
+    {
+        Field field = new Field(10, 10);
+        Location hareLocation = field.getLocation(1, 1);
+        field.placeOrganism(new Hare(false, hareLocation), hareLocation);
+        assertFalse(field.isViable());
+
+        Location wolfLocation = field.getLocation(5, 5);
+        Wolf wolf = new Wolf(false, wolfLocation);
+        field.placeOrganism(wolf, wolfLocation);
+        assertTrue(field.isViable());
+        assertTrue(field.isViable(Viability.anyOf(Species.Kind.PREDATOR)));
+
+        wolf.setDead();
+        assertFalse(field.isViable());
+        assertTrue(field.isViable(Viability.anyOf(Species.Kind.PREY)));
+    }
+
+    @Test
+    void simulationStopsOnceNotViable()
+    {
+        Simulator simulator = new Simulator(40, 60, false);
+        int[] lastStep = new int[1];
+        simulator.addRecorder((step, field) -> lastStep[0] = step);
+        simulator.setViability(counts -> false);
+        simulator.simulate(10);
+        assertEquals(0, lastStep[0]);
+
+        // A rule that fails once no hares are left stops with them.
+        simulator.setViability(Viability.allOf(Species.HARE));
+        simulator.simulate(10);
+        assertEquals(10, lastStep[0]);
+        simulator.getField().getOrganisms().forEach(anOrganism -> {
+            if(anOrganism.getSpecies() == Species.HARE) {
+                anOrganism.setDead();
+            }
+        });
+        simulator.simulate(10);
+        assertEquals(10, lastStep[0]);
+    }
+
+    /**
+     * @param alive The species with a live organism.
+     * @return Counts of one organism of each given species.
+     */
+    private static ToIntFunction<Species> counts(Species... alive)
+    {
+        Map<Species, Integer> counts = new EnumMap<>(Species.class);
+        for(Species species : alive) {
+            counts.put(species, 1);
+        }
+        return species -> counts.getOrDefault(species, 0);
+    }
+}
@@ -0,0 +1,135 @@
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * The memory of ArrayEngine outside the heap, in memory segments of the
+ * Foreign Function and Memory API. An array may hold more than 2^31
+ * elements, and the garbage collector never scans or copies them.
+ *
+ * Each array has its own arena, so an array replaced by resize is freed
+ * at once rather than when the memory is closed. Close the memory when
+ * the engine is no longer needed, for instance:
+ *
+ *     try(SegmentMemory memory = new SegmentMemory()) {
+ *         ArrayEngine engine = new ArrayEngine(50_000, 50_000, memory);
+ *         engine.simulate(100);
+ *     }
+ *
+ * @author David J. Barnes and Michael Kölling
+ * @version 7.1
+ */
+public final class SegmentMemory implements EngineMemory
+{
+    // The arenas of the arrays still in use.
+    private final Set<Arena> arenas = new HashSet<>();
+
+    /**
+     * Create a memory with no arrays allocated.
+     */
+    public SegmentMemory()
+    {
+    }
+
+    @Override
+    public synchronized Ints ints(long length)
+    {
+        if(length < 0 || length > Long.MAX_VALUE / Integer.BYTES) {
+            throw new IllegalArgumentException("Cannot hold " + length + " elements");
+        }
+        // A shared arena, so the engine may be stepped by any thread.
+        Arena arena = Arena.ofShared();
+        arenas.add(arena);
+        // Memory from an arena starts out zeroed. Allocating by size and
+        // alignment works with the API of both Java 21 and Java 22.
+        MemorySegment segment = arena.allocate(length * Integer.BYTES, Integer.BYTES);
+        return new SegmentInts(arena, segment, length);
+    }
+
+    @Override
+    public synchronized void close()
+    {
+        for(Arena arena : arenas) {
+            arena.close();
+        }
+        arenas.clear();
+    }
+
+    /**
+     * Free the memory of one array.
+     * @param arena The array's arena.
+     */
+    private synchronized void release(Arena arena)
+    {
+        if(arenas.remove(arena)) {
+            arena.close();
+        }
+    }
+
+    /**
+     * An array of ints in a memory segment.
+     */
+    private final class SegmentInts implements EngineMemory.Ints
+    {
+        private final Arena arena;
+        private final MemorySegment segment;
+        private final long length;
+
+        /**
+         * @param arena The arena the segment belongs to.
+         * @param segment The elements.
+         * @param length The number of elements.
+         */
+        private SegmentInts(Arena arena, MemorySegment segment, long length)
+        {
+            this.arena = arena;
+            this.segment = segment;
+            this.length = length;
+        }
+
+        @Override
+        public long length()
+        {
+            return length;
+        }
+
+        @Override
+        public int get(long index)
+        {
+            return segment.getAtIndex(ValueLayout.JAVA_INT, index);
+        }
+
+        @Override
+        public void set(long index, int value)
+        {
+            segment.setAtIndex(ValueLayout.JAVA_INT, index, value);
+        }
+
+        @Override
+        public void fill(long from, long to, int value)
+        {
+            if(value == 0) {
+                long bytes = ValueLayout.JAVA_INT.byteSize();
+                segment.asSlice(from * bytes, (to - from) * bytes).fill((byte) 0);
+            }
+            else {
+                for(long index = from; index < to; index++) {
+                    segment.setAtIndex(ValueLayout.JAVA_INT, index, value);
+                }
+            }
+        }
+
+        @Override
+        public EngineMemory.Ints resize(long newLength)
+        {
+            SegmentInts resized = (SegmentInts) ints(newLength);
+            MemorySegment.copy(segment, ValueLayout.JAVA_INT, 0,
+                               resized.segment, ValueLayout.JAVA_INT, 0,
+                               Math.min(length, newLength));
+            release(arena);
+            return resized;
+        }
+    }
+}
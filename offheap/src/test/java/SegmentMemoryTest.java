@@ -0,0 +1,84 @@
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests that the arrays of a SegmentMemory behave as those on the heap
+ * do, and that an ArrayEngine keeping its state in them runs exactly
+ * as one keeping it on the heap.
+ *
+ * @author David J. Barnes and Michael Kölling
+ * @version 7.1
+ */
+class SegmentMemoryTest
+{
+    private static final int DEPTH = 60, WIDTH = 80;
+    private static final int STEPS = 40;
+
+    @Test
+    void arraysStartZeroedAndKeepTheirValues()
+    {
+        try(SegmentMemory memory = new SegmentMemory()) {
+            EngineMemory.Ints ints = memory.ints(100);
+            assertEquals(100, ints.length());
+            for(long index = 0; index < 100; index++) {
+                assertEquals(0, ints.get(index));
+            }
+            ints.set(3, 42);
+            ints.fill(10, 20, -1);
+            ints.fill(15, 17, 0);
+            assertEquals(42, ints.get(3));
+            assertEquals(-1, ints.get(10));
+            assertEquals(0, ints.get(16));
+            assertEquals(-1, ints.get(19));
+            assertEquals(0, ints.get(20));
+
+            EngineMemory.Ints resized = ints.resize(300);
+            assertEquals(300, resized.length());
+            assertEquals(42, resized.get(3));
+            assertEquals(-1, resized.get(19));
+            assertEquals(0, resized.get(299));
+            assertEquals(42, resized.resize(5).get(3));
+        }
+    }
+
+    @Test
+    void negativeLengthIsRefused()
+    {
+        try(SegmentMemory memory = new SegmentMemory()) {
+            assertThrows(IllegalArgumentException.class, () -> memory.ints(-1));
+        }
+    }
+
+    @Test
+    void engineRunsAsOnTheHeap()
+    {
+        RandomStream heapStream = new RandomStream(1111);
+        RandomStream segmentStream = new RandomStream(1111);
+        RandomStream previous = Randomizer.useStream(heapStream);
+        try(SegmentMemory memory = new SegmentMemory()) {
+            ArrayEngine onHeap = new ArrayEngine(DEPTH, WIDTH, EngineMemory.HEAP);
+            Randomizer.useStream(segmentStream);
+            ArrayEngine offHeap = new ArrayEngine(DEPTH, WIDTH, memory);
+            for(int step = 0; step <= STEPS; step++) {
+                for(int row = 0; row < DEPTH; row++) {
+                    for(int col = 0; col < WIDTH; col++) {
+                        assertEquals(onHeap.getSpeciesAt(row, col), offHeap.getSpeciesAt(row, col),
+                                     "step " + step + ", cell " + row + "," + col);
+                    }
+                }
+                for(Species species : Species.values()) {
+                    assertEquals(onHeap.getCount(species), offHeap.getCount(species));
+                }
+                Randomizer.useStream(heapStream);
+                onHeap.simulateOneStep();
+                Randomizer.useStream(segmentStream);
+                offHeap.simulateOneStep();
+            }
+        }
+        finally {
+            Randomizer.useStream(previous);
+        }
+    }
+}